@@ -0,0 +1,291 @@
+package pathfinder.informed;
+
+import java.util.ArrayList;
+
+/**
+ * Anytime Repairing A* (ARA*): a weighted A* whose heuristic weight starts high,
+ * so that a first solution is found quickly, and is then lowered step by step
+ * toward 1, each round improving the solution while reusing the search tree of
+ * the rounds before. A state whose cost drops after it was expanded in a round
+ * is set aside (as "inconsistent") rather than expanded again, and rejoins the
+ * frontier in the next round, when every frontier key is recomputed with the new
+ * weight.
+ * <p>
+ * The search runs over (cell, key held) states, as in Pathfinder.solveLayered but
+ * with only the problem's own Key. After each round, the cost of the best
+ * solution divided by the least g + h over the frontier and the set-aside states
+ * bounds how far that solution can be from optimal; the solution and its bound
+ * are handed to a Listener whenever either improves. The search stops when the
+ * bound reaches 1 or the time budget runs out, though never before a first
+ * solution is found.
+ * <p>
+ * Keys are kept in integers, with weights in sixteenths.
+ */
+public class AnytimePathfinder {
+
+    /**
+     * Receives each solution found by an anytime search that improves on the last.
+     */
+    public interface Listener {
+
+        /**
+         * @param path The actions of the solution, of the format: ["R", "R", "L", ...]
+         * @param cost The solution's cost, at most the given bound times the optimal one
+         * @param bound The solution's suboptimality bound, at least 1
+         */
+        void improved (ArrayList<String> path, int cost, double bound);
+
+    }
+
+    // Fields
+    // -----------------------------------------------------------------------------
+    public static final double DEFAULT_INITIAL_WEIGHT = 3.0, DEFAULT_WEIGHT_STEP = 0.5;
+    private static final int SCALE = 16, NONE = -1, CHECK_INTERVAL = 256;
+    private final MazeProblem problem;
+    private final SearchWorkspace workspace;
+    private final int size, keyGoalCost;
+    private final long startTime, budgetNanos;
+    private final ClusterGraph.IntList inconsistent = new ClusterGraph.IntList();
+    private int weight, bestGoal = NONE, bestCost = DistanceField.UNREACHABLE;
+
+
+    // Constructor
+    // -----------------------------------------------------------------------------
+
+    /**
+     * Constructs a new AnytimePathfinder for the given problem.
+     *
+     * @param problem A MazeProblem that specifies the maze, actions, transitions.
+     * @param weight The initial heuristic weight, in sixteenths
+     * @param budgetNanos Time after which to stop improving the solution, in nanoseconds
+     */
+    private AnytimePathfinder (MazeProblem problem, int weight, long budgetNanos) {
+        this.startTime = System.nanoTime();
+        this.budgetNanos = budgetNanos;
+        this.problem = problem;
+        this.size = problem.getGrid().size();
+        this.workspace = SearchWorkspace.forCurrentThread(2 * size, Frontier.Kind.BINARY_HEAP);
+        this.keyGoalCost = problem.getDistance(problem.KEY_CELL, true);
+        this.weight = weight;
+    }
+
+
+    // Methods
+    // -----------------------------------------------------------------------------
+
+    /**
+     * Given a MazeProblem, searches for a solution as in solve(problem,
+     * initialWeight, weightStep, budgetNanos, listener), with the default weights.
+     *
+     * @param problem A MazeProblem that specifies the maze, actions, transitions.
+     * @param budgetNanos Time after which to stop improving the solution, in nanoseconds
+     * @param listener The Listener to hand each improved solution to, or null
+     * @return An ArrayList of Strings representing actions that lead from the initial to
+     * the goal state, of the format: ["R", "R", "L", ...], or null if there is none
+     */
+    public static ArrayList<String> solve (MazeProblem problem, long budgetNanos, Listener listener) {
+        return solve(problem, DEFAULT_INITIAL_WEIGHT, DEFAULT_WEIGHT_STEP, budgetNanos, listener);
+    }
+
+    /**
+     * Given a MazeProblem, returns the best solution that ARA* finds within the
+     * given time budget, starting with the given heuristic weight and lowering it
+     * by the given step each round. The first solution is returned even if
+     * finding it takes longer than the budget.
+     *
+     * @param problem A MazeProblem that specifies the maze, actions, transitions.
+     * @param initialWeight The heuristic weight of the first round, at least 1
+     * @param weightStep The amount to lower the weight by each round, more than 0
+     * @param budgetNanos Time after which to stop improving the solution, in nanoseconds
+     * @param listener The Listener to hand each improved solution to, or null
+     * @return An ArrayList of Strings representing actions that lead from the initial to
+     * the goal state, of the format: ["R", "R", "L", ...], or null if there is none
+     * @throws IllegalArgumentException If initialWeight is less than 1 or weightStep
+     * is not positive
+     */
+    public static ArrayList<String> solve (MazeProblem problem, double initialWeight, double weightStep,
+                                           long budgetNanos, Listener listener) {
+        int step = (int) Math.round(weightStep * SCALE);
+        if (initialWeight < 1 || step < 1) {
+            throw new IllegalArgumentException("Weights must start at 1 or more and step down by 1/16 or more");
+        }
+        if (!problem.mayBeSolvable()) {
+            return null;
+        }
+        AnytimePathfinder search = new AnytimePathfinder(problem, (int) Math.round(initialWeight * SCALE), budgetNanos);
+        try {
+            return search.search(step, listener);
+        } finally {
+            search.workspace.release();
+        }
+    }
+
+    private ArrayList<String> search (int step, Listener listener) {
+        int start = problem.INITIAL_CELL + ((problem.INITIAL_CELL == problem.KEY_CELL) ? size : 0);
+        int startCost = getHeuristic(start);
+        if (startCost == DistanceField.UNREACHABLE) {
+            return null;
+        }
+        workspace.reset();
+        workspace.generate(start, NONE, NONE, 0);
+        offerGoal(start);
+        workspace.frontier.push(start, weight * startCost);
+
+        ArrayList<String> best = null;
+        int reportedCost = DistanceField.UNREACHABLE;
+        double reportedBound = Double.POSITIVE_INFINITY;
+        while (true) {
+            boolean expired = !improvePath();
+            if (bestGoal == NONE) {
+                return null; // The frontier ran dry without reaching a goal
+            }
+            ClusterGraph.IntList pending = drainPending();
+            double bound = getBound(pending);
+            if (bestCost < reportedCost || bound < reportedBound) {
+                if (bestCost < reportedCost || best == null) {
+                    best = Pathfinder.getPath(workspace, bestGoal);
+                }
+                reportedCost = bestCost;
+                reportedBound = bound;
+                if (listener != null) {
+                    listener.improved(new ArrayList<>(best), bestCost, bound);
+                }
+            }
+            if (expired || bound <= 1 || weight == SCALE || isExpired()) {
+                return best;
+            }
+
+            // Next round: a lower weight, the set-aside states back on the
+            // frontier, and every frontier key recomputed
+            weight = Math.max(SCALE, weight - step);
+            workspace.closedCells.clear();
+            for (int i = 0; i < pending.size; i++) {
+                int state = pending.values[i];
+                if (!workspace.frontier.contains(state)) {
+                    workspace.frontier.push(state, getKey(state, getHeuristic(state)));
+                }
+            }
+        }
+    }
+
+    /**
+     * [Mutator] Expands states in order of weighted key until the best goal found
+     * has a key no greater than any on the frontier.
+     *
+     * @return Whether the round finished, rather than being cut short by the time
+     * budget once a solution was known
+     */
+    private boolean improvePath () {
+        Frontier frontier = workspace.frontier;
+        CellSet closedStates = workspace.closedCells;
+        int[] neighbors = workspace.neighbors, pastCosts = workspace.pastCosts;
+        for (int expanded = 1; !frontier.isEmpty(); expanded++) {
+            if (bestGoal != NONE && frontier.peekKey() >= SCALE * bestCost) {
+                return true;
+            }
+            if (bestGoal != NONE && expanded % CHECK_INTERVAL == 0 && isExpired()) {
+                return false;
+            }
+            int expanding = frontier.pop();
+            closedStates.add(expanding);
+            boolean hasKey = expanding >= size;
+            int cell = hasKey ? expanding - size : expanding;
+
+            problem.getNeighbors(cell, neighbors);
+            for (int move = MazeGrid.UP; move <= MazeGrid.RIGHT; move++) {
+                int nextCell = neighbors[move];
+                if (nextCell < 0) {
+                    continue;
+                }
+                int next = (hasKey || nextCell == problem.KEY_CELL) ? nextCell + size : nextCell;
+                int pastCost = pastCosts[expanding] + problem.getCost(nextCell);
+                if (!workspace.isGenerated(next)) {
+                    int futureCost = getHeuristic(next);
+                    if (futureCost == DistanceField.UNREACHABLE) {
+                        continue;
+                    }
+                    workspace.generate(next, expanding, move, pastCost);
+                    frontier.push(next, getKey(next, futureCost));
+                } else if (pastCost < pastCosts[next]) {
+                    workspace.reparent(next, expanding, move, pastCost);
+                    if (closedStates.contains(next)) {
+                        inconsistent.add(next);
+                    } else if (frontier.contains(next)) {
+                        frontier.decreaseKey(next, getKey(next, getHeuristic(next)));
+                    } else {
+                        // Closed in an earlier round
+                        frontier.push(next, getKey(next, getHeuristic(next)));
+                    }
+                } else {
+                    continue;
+                }
+                offerGoal(next);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * [Mutator] Records the given state as the best goal found if it is a goal
+     * reached more cheaply than the best so far.
+     */
+    private void offerGoal (int state) {
+        if (state >= size && problem.isGoal(state - size) && workspace.pastCosts[state] < bestCost) {
+            bestGoal = state;
+            bestCost = workspace.pastCosts[state];
+        }
+    }
+
+    /**
+     * [Mutator] Empties the frontier and the set-aside states into one list.
+     */
+    private ClusterGraph.IntList drainPending () {
+        ClusterGraph.IntList pending = new ClusterGraph.IntList();
+        while (!workspace.frontier.isEmpty()) {
+            pending.add(workspace.frontier.pop());
+        }
+        for (int i = 0; i < inconsistent.size; i++) {
+            pending.add(inconsistent.values[i]);
+        }
+        inconsistent.size = 0;
+        return pending;
+    }
+
+    /**
+     * @return The suboptimality bound of the best solution: the lesser of the
+     * weight and its cost over the least g + h of the given pending states
+     */
+    private double getBound (ClusterGraph.IntList pending) {
+        long least = Long.MAX_VALUE;
+        for (int i = 0; i < pending.size; i++) {
+            int state = pending.values[i];
+            least = Math.min(least, (long) workspace.pastCosts[state] + getHeuristic(state));
+        }
+        double bound = (least >= bestCost) ? 1 : (double) bestCost / least;
+        return Math.min((double) weight / SCALE, bound);
+    }
+
+    private boolean isExpired () {
+        return System.nanoTime() - startTime >= budgetNanos;
+    }
+
+    private int getKey (int state, int futureCost) {
+        return SCALE * workspace.pastCosts[state] + weight * futureCost;
+    }
+
+    /**
+     * @return The consistent estimate of the cost from the given state to a goal:
+     * with the key, the problem's goal distance, and without, its key distance
+     * plus the key's goal distance
+     */
+    private int getHeuristic (int state) {
+        if (state >= size) {
+            return problem.getDistance(state - size, true);
+        }
+        if (keyGoalCost == DistanceField.UNREACHABLE) {
+            return DistanceField.UNREACHABLE;
+        }
+        return problem.getDistance(state, false) + keyGoalCost;
+    }
+
+}
@@ -0,0 +1,166 @@
+package pathfinder.informed;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Solves many (start, key, goals) queries against a single, immutable maze in
+ * parallel on a ForkJoinPool. Every query becomes a lightweight MazeProblem that
+ * shares the maze's MazeGrid, and every worker thread reuses its pooled
+ * SearchWorkspace (see SearchWorkspace.forCurrentThread) for all of the queries it solves.
+ */
+public class BatchSolver {
+
+    // Fields
+    // -----------------------------------------------------------------------------
+    private static final int QUERIES_PER_TASK = 16;
+    private final MazeGrid grid;
+    private final Frontier.Kind frontierKind;
+
+
+    // Constructor
+    // -----------------------------------------------------------------------------
+
+    /**
+     * Constructs a new BatchSolver for queries against the given maze.
+     *
+     * @param maze The MazeProblem whose grid every query searches; its own initial,
+     * key, and goal states are ignored
+     * @param frontierKind The Frontier implementation each worker searches with
+     */
+    public BatchSolver (MazeProblem maze, Frontier.Kind frontierKind) {
+        this.grid = maze.getGrid();
+        this.frontierKind = frontierKind;
+    }
+
+
+    // Methods
+    // -----------------------------------------------------------------------------
+
+    /**
+     * Solves every query on the given pool, returning once all are done.
+     *
+     * @param queries The queries to solve
+     * @param pool The ForkJoinPool to solve on, e.g., ForkJoinPool.commonPool()
+     * @return The Result of each query, in the same order, and the throughput
+     */
+    public BatchResult solveAll (List<Query> queries, ForkJoinPool pool) {
+        Result[] results = new Result[queries.size()];
+        long start = System.nanoTime();
+        pool.invoke(new SolveRange(queries, results, 0, results.length));
+        return new BatchResult(results, System.nanoTime() - start);
+    }
+
+    /**
+     * Solves a single query on the calling thread, with that thread's workspace.
+     *
+     * @param query The query to solve
+     * @return The query's Result
+     * @throws IllegalArgumentException If the query has no start, or a state lies
+     * outside the grid
+     */
+    public Result solve (Query query) {
+        long start = System.nanoTime();
+        MazeProblem problem = new MazeProblem(grid, query.start, query.key, query.goals);
+        ArrayList<String> path = Pathfinder.solve(problem, frontierKind);
+        int cost = (path == null) ? -1 : problem.testSolution(path)[1];
+        return new Result(path, cost, System.nanoTime() - start);
+    }
+
+    /**
+     * ForkJoin task that splits a range of queries in half until it is small enough
+     * to solve directly.
+     */
+    private class SolveRange extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+        private final List<Query> queries;
+        private final Result[] results;
+        private final int from, to;
+
+        SolveRange (List<Query> queries, Result[] results, int from, int to) {
+            this.queries = queries;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute () {
+            if (to - from <= QUERIES_PER_TASK) {
+                for (int i = from; i < to; i++) {
+                    results[i] = solve(queries.get(i));
+                }
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new SolveRange(queries, results, from, middle),
+                          new SolveRange(queries, results, middle, to));
+            }
+        }
+
+    }
+
+    /**
+     * A single pathfinding query: start at one state, collect the key, then reach
+     * any of the goals.
+     */
+    public static class Query {
+
+        final MazeState start, key;
+        final Collection<MazeState> goals;
+
+        public Query (MazeState start, MazeState key, Collection<MazeState> goals) {
+            this.start = start;
+            this.key = key;
+            this.goals = goals;
+        }
+
+    }
+
+    /**
+     * The answer to a single Query.
+     */
+    public static class Result {
+
+        /** Actions of format ["U", "R", ...], or null if the query has no solution */
+        public final ArrayList<String> path;
+        /** Total cost of path, or -1 if there is none */
+        public final int cost;
+        /** Wall-clock time spent on the query */
+        public final long nanos;
+
+        Result (ArrayList<String> path, int cost, long nanos) {
+            this.path = path;
+            this.cost = cost;
+            this.nanos = nanos;
+        }
+
+    }
+
+    /**
+     * The answers to a batch of queries together with aggregate timing.
+     */
+    public static class BatchResult {
+
+        public final Result[] results;
+        /** Wall-clock time of the whole batch */
+        public final long elapsedNanos;
+
+        BatchResult (Result[] results, long elapsedNanos) {
+            this.results = results;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /**
+         * @return Queries solved per second over the whole batch
+         */
+        public double getThroughput () {
+            return results.length * 1e9 / Math.max(1, elapsedNanos);
+        }
+
+    }
+
+}
@@ -0,0 +1,222 @@
+package pathfinder.informed;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * Bidirectional A* for the key-to-goal leg of a MazeProblem: a forward search
+ * grows from the key while a backward search grows from every goal at once (as
+ * a multi-source set), and the two meet in the middle.
+ * <p>
+ * Both searches use the "average" potential p(v) = (goalDistance(v) -
+ * keyDistance(v)) / 2 (forward) and -p(v) (backward), which is consistent in
+ * both directions because every step costs at least 1 while each block distance
+ * changes by at most 1. With these potentials, the sum of a forward and backward
+ * key at a cell is exactly the length of the path through it, so the search can
+ * stop as soon as the two smallest frontier keys sum to at least the best path
+ * length found so far. All keys are doubled to stay in integers.
+ */
+public class BidirectionalSearch {
+
+    // Fields
+    // -----------------------------------------------------------------------------
+    private static final int UNREACHED = Integer.MAX_VALUE;
+    private final MazeProblem problem;
+    private final MazeGrid grid;
+    private final int[] forwardCosts, backwardCosts, neighbors = new int[4];
+    private final byte[] forwardMoves, backwardMoves;
+    private final CellSet forwardClosed, backwardClosed;
+    private final IndexedHeap forward, backward;
+    private int bestCost = UNREACHED, meetingCell = -1;
+
+
+    // Constructor
+    // -----------------------------------------------------------------------------
+
+    /**
+     * Constructs a new BidirectionalSearch over the given problem.
+     *
+     * @param problem A MazeProblem that specifies the maze, actions, transitions.
+     */
+    private BidirectionalSearch (MazeProblem problem) {
+        this.problem = problem;
+        this.grid = problem.getGrid();
+        int size = grid.size();
+        forwardCosts = new int[size];
+        backwardCosts = new int[size];
+        Arrays.fill(forwardCosts, UNREACHED);
+        Arrays.fill(backwardCosts, UNREACHED);
+        forwardMoves = new byte[size];
+        backwardMoves = new byte[size];
+        forwardClosed = new BitCellSet(size);
+        backwardClosed = new BitCellSet(size);
+        forward = new IndexedHeap(size);
+        backward = new IndexedHeap(size);
+    }
+
+
+    // Methods
+    // -----------------------------------------------------------------------------
+
+    /**
+     * Given a MazeProblem, returns a solution as in Pathfinder.solve, except that the
+     * key-to-goal leg is found with a bidirectional search.
+     *
+     * @param problem A MazeProblem that specifies the maze, actions, transitions.
+     * @return An ArrayList of Strings representing actions that lead from the initial to
+     * the goal state, of the format: ["R", "R", "L", ...], or null if there is none
+     */
+    public static ArrayList<String> solve (MazeProblem problem) {
+        if (problem.KEY_STATE == null) {
+            return null;
+        }
+        ArrayList<String> pathSoln = Pathfinder.search(problem, problem.INITIAL_CELL, false,
+                Frontier.Kind.BINARY_HEAP);
+        if (pathSoln == null) {
+            return null;
+        }
+        ArrayList<String> keyToGoal = keyToGoal(problem);
+        if (keyToGoal == null) {
+            return null;
+        }
+        pathSoln.addAll(keyToGoal);
+        return pathSoln;
+    }
+
+    /**
+     * Finds a cheapest path from the problem's key to the nearest of its goals.
+     *
+     * @param problem A MazeProblem that specifies the maze, actions, transitions.
+     * @return The actions leading from the key to a goal, of the format:
+     * ["R", "R", "L", ...], or null if no goal can be reached from the key
+     */
+    public static ArrayList<String> keyToGoal (MazeProblem problem) {
+        if (problem.KEY_STATE == null || problem.getGoalCells().length == 0) {
+            return null;
+        }
+        // The exact distances of a precomputed field already answer this leg
+        DistanceField goalField = problem.getGoalDistanceField();
+        if (goalField != null) {
+            return goalField.getPath(problem.KEY_CELL);
+        }
+        return new BidirectionalSearch(problem).search();
+    }
+
+    private ArrayList<String> search () {
+        int key = problem.KEY_CELL;
+        forwardCosts[key] = 0;
+        forward.push(key, forwardKey(key));
+        for (int goal : problem.getGoalCells()) {
+            if (grid.isWall(goal)) {
+                continue; // No move can enter it, so no path ends there
+            }
+            backwardCosts[goal] = 0;
+            backward.push(goal, backwardKey(goal));
+        }
+
+        while (!forward.isEmpty() && !backward.isEmpty()) {
+            if (bestCost != UNREACHED && (long) forward.peekKey() + backward.peekKey() >= 2L * bestCost) {
+                break;
+            }
+            if (forward.size() <= backward.size()) {
+                expandForward(forward.pop());
+            } else {
+                expandBackward(backward.pop());
+            }
+        }
+        return bestCost == UNREACHED ? null : getPath();
+    }
+
+    /**
+     * Relaxes the moves out of a cell settled by the forward search.
+     */
+    private void expandForward (int cell) {
+        forwardClosed.add(cell);
+        grid.getNeighbors(cell, neighbors);
+        for (int move = MazeGrid.UP; move <= MazeGrid.RIGHT; move++) {
+            int next = neighbors[move];
+            if (next < 0 || forwardClosed.contains(next)) {
+                continue;
+            }
+            int pastCost = forwardCosts[cell] + grid.getCost(next);
+            if (pastCost < forwardCosts[next]) {
+                boolean queued = forwardCosts[next] != UNREACHED;
+                forwardCosts[next] = pastCost;
+                forwardMoves[next] = (byte) move;
+                if (queued) {
+                    forward.decreaseKey(next, forwardKey(next));
+                } else {
+                    forward.push(next, forwardKey(next));
+                }
+                meet(next);
+            }
+        }
+    }
+
+    /**
+     * Relaxes the moves into a cell settled by the backward search, i.e., extends
+     * the paths to a goal backward by one step.
+     */
+    private void expandBackward (int cell) {
+        backwardClosed.add(cell);
+        int pastCost = backwardCosts[cell] + grid.getCost(cell);
+        grid.getNeighbors(cell, neighbors);
+        for (int move = MazeGrid.UP; move <= MazeGrid.RIGHT; move++) {
+            int previous = neighbors[move];
+            if (previous < 0 || backwardClosed.contains(previous) || pastCost >= backwardCosts[previous]) {
+                continue;
+            }
+            boolean queued = backwardCosts[previous] != UNREACHED;
+            backwardCosts[previous] = pastCost;
+            backwardMoves[previous] = (byte) MazeGrid.reverse(move);
+            if (queued) {
+                backward.decreaseKey(previous, backwardKey(previous));
+            } else {
+                backward.push(previous, backwardKey(previous));
+            }
+            meet(previous);
+        }
+    }
+
+    /**
+     * Records the path through the given cell if both searches have reached it
+     * and it is cheaper than the best found so far.
+     */
+    private void meet (int cell) {
+        if (forwardCosts[cell] != UNREACHED && backwardCosts[cell] != UNREACHED
+                && forwardCosts[cell] + backwardCosts[cell] < bestCost) {
+            bestCost = forwardCosts[cell] + backwardCosts[cell];
+            meetingCell = cell;
+        }
+    }
+
+    private int forwardKey (int cell) {
+        return 2 * forwardCosts[cell] + problem.getGoalDistance(cell) - problem.getKeyDistance(cell);
+    }
+
+    private int backwardKey (int cell) {
+        return 2 * backwardCosts[cell] + problem.getKeyDistance(cell) - problem.getGoalDistance(cell);
+    }
+
+    /**
+     * Joins the forward path from the key to the meeting cell with the backward
+     * path from the meeting cell to a goal.
+     */
+    private ArrayList<String> getPath () {
+        ArrayList<String> result = new ArrayList<>();
+        for (int cell = meetingCell; cell != problem.KEY_CELL; ) {
+            int move = forwardMoves[cell];
+            result.add(MazeGrid.action(move));
+            cell = grid.adjacent(cell, MazeGrid.reverse(move)); // The key may be a wall
+        }
+        Collections.reverse(result);
+        for (int cell = meetingCell; backwardCosts[cell] > 0; ) {
+            int move = backwardMoves[cell];
+            result.add(MazeGrid.action(move));
+            cell = grid.step(cell, move);
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,69 @@
+package pathfinder.informed;
+
+import java.util.Arrays;
+
+/**
+ * CellSet of the cells [0, capacity) backed by a bitset of longs, an eighth of
+ * the memory of a boolean per cell.
+ */
+public class BitCellSet implements CellSet {
+
+    // Fields
+    // -----------------------------------------------------------------------------
+    private final long[] words;
+    private int size;
+
+
+    // Constructor
+    // -----------------------------------------------------------------------------
+
+    /**
+     * Constructs a new, empty BitCellSet able to hold the cells [0, capacity).
+     *
+     * @param capacity Number of distinct cells, i.e., MazeGrid.size()
+     */
+    BitCellSet (int capacity) {
+        words = new long[(capacity + 63) >>> 6];
+    }
+
+
+    // Methods
+    // -----------------------------------------------------------------------------
+
+    @Override
+    public boolean contains (int cell) {
+        return (words[cell >>> 6] & (1L << cell)) != 0;
+    }
+
+    @Override
+    public boolean add (int cell) {
+        long word = words[cell >>> 6], bit = 1L << cell;
+        if ((word & bit) != 0) {
+            return false;
+        }
+        words[cell >>> 6] = word | bit;
+        size++;
+        return true;
+    }
+
+    @Override
+    public void remove (int cell) {
+        long word = words[cell >>> 6], bit = 1L << cell;
+        if ((word & bit) != 0) {
+            words[cell >>> 6] = word & ~bit;
+            size--;
+        }
+    }
+
+    @Override
+    public int size () {
+        return size;
+    }
+
+    @Override
+    public void clear () {
+        Arrays.fill(words, 0);
+        size = 0;
+    }
+
+}
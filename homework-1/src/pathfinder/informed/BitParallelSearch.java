@@ -0,0 +1,265 @@
+package pathfinder.informed;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * Breadth-first search for mazes in which every step costs 1 (no MUD), run 64
+ * cells at a time. Each row of the grid is a bitset of longs, and a whole BFS
+ * layer is expanded with shifts and masks: a cell joins the next layer if it is
+ * open, unvisited, and next to a cell of the current one, i.e.,
+ * <pre>
+ * next = (f &lt;&lt; 1 | f &gt;&gt;&gt; 1 | f above | f below) &amp; open &amp; ~visited
+ * </pre>
+ * with bits carried between the words of a row. Only the words holding frontier
+ * cells, and the words next to them, are processed in each layer.
+ * <p>
+ * Rather than a distance per cell, each cell's distance modulo 3 is recorded in
+ * three bitsets. Neighboring cells' distances differ by at most 1, so when
+ * walking back from the objective, the neighbor of a cell at distance d whose
+ * distance is d - 1 (mod 3) is exactly one layer closer to the start.
+ * <p>
+ * Each thread keeps its own bitsets, along with the open-cell bitset of the last
+ * grid (and grid version) it searched.
+ */
+public class BitParallelSearch {
+
+    // Fields
+    // -----------------------------------------------------------------------------
+    private static final ThreadLocal<BitParallelSearch> SCRATCH = ThreadLocal.withInitial(BitParallelSearch::new);
+    private MazeGrid grid;
+    private long gridVersion;
+    private int rows, cols, stride;
+    private long[] open, visited, frontier, next, targets;
+    private final long[][] layers = new long[3][];
+    private int[] active, nextActive;
+    private int activeCount;
+    private boolean found;
+
+
+    // Methods
+    // -----------------------------------------------------------------------------
+
+    /**
+     * Runs a single leg of Pathfinder.solve as a bit-parallel BFS: from the given
+     * starting cell to the key (if foundKey is false) or to the nearest goal (if
+     * foundKey is true). Step costs are taken to be 1, so the grid must not hold MUD.
+     *
+     * @param problem A MazeProblem that specifies the maze, actions, transitions.
+     * @param startingCell Flat cell index to search from.
+     * @param foundKey Whether the objective of this leg is a goal rather than the key.
+     * @return The actions of a shortest leg, of the format: ["R", "R", "L", ...], or
+     * null if its objective is unreachable
+     * @throws IllegalArgumentException If the grid holds MUD
+     */
+    public static ArrayList<String> search (MazeProblem problem, int startingCell, boolean foundKey) {
+        if (problem.getGrid().hasMud()) {
+            throw new IllegalArgumentException("Bit-parallel search needs uniform step costs");
+        }
+        return SCRATCH.get().run(problem, startingCell, foundKey);
+    }
+
+    private ArrayList<String> run (MazeProblem problem, int start, boolean foundKey) {
+        if (problem.isObjective(start, foundKey)) {
+            return new ArrayList<>();
+        }
+        prepare(problem.getGrid());
+        int[] objectives = foundKey ? problem.getGoalCells() : new int[] {problem.KEY_CELL};
+        for (int objective : objectives) {
+            targets[wordOf(objective)] |= bitOf(objective);
+        }
+        try {
+            int found = expand(start);
+            return (found < 0) ? null : getPath(found);
+        } finally {
+            for (int objective : objectives) {
+                targets[wordOf(objective)] = 0;
+            }
+            // Leave the frontier empty for the next search, which only ever
+            // clears the words it made active
+            for (int a = 0; a < activeCount; a++) {
+                frontier[active[a]] = 0;
+            }
+            activeCount = 0;
+        }
+    }
+
+    /**
+     * [Mutator] Sizes the bitsets for the given grid and clears them, rebuilding
+     * the open-cell bitset if the grid or its terrain changed since the last search.
+     */
+    private void prepare (MazeGrid target) {
+        if (target != grid || target.getVersion() != gridVersion) {
+            grid = target;
+            gridVersion = target.getVersion();
+            rows = target.rows;
+            cols = target.cols;
+            stride = (cols + 63) >>> 6;
+            int words = rows * stride;
+            if (open == null || open.length != words) {
+                open = new long[words];
+                visited = new long[words];
+                frontier = new long[words];
+                next = new long[words];
+                targets = new long[words];
+                for (int k = 0; k < 3; k++) {
+                    layers[k] = new long[words];
+                }
+                active = new int[words];
+                nextActive = new int[words];
+            }
+            Arrays.fill(open, 0);
+            for (int cell = 0, size = target.size(); cell < size; cell++) {
+                if (!target.isWall(cell)) {
+                    open[wordOf(cell)] |= bitOf(cell);
+                }
+            }
+        }
+        Arrays.fill(visited, 0);
+        for (long[] layer : layers) {
+            Arrays.fill(layer, 0);
+        }
+    }
+
+    /**
+     * [Mutator] Expands BFS layers from the given cell until one holds a target.
+     *
+     * @return The first target cell reached, or -1 if every reachable cell was
+     * visited without reaching one
+     */
+    private int expand (int start) {
+        int first = wordOf(start);
+        frontier[first] = bitOf(start);
+        visited[first] = bitOf(start);
+        layers[0][first] = bitOf(start);
+        active[0] = first;
+        activeCount = 1;
+        for (int depth = 1; activeCount > 0; depth++) {
+            long[] layer = layers[depth % 3];
+            int reachedCount = 0;
+            found = false;
+            for (int a = 0; a < activeCount; a++) {
+                // A word can only gain cells from itself and the four words around it
+                int word = active[a], w = word % stride;
+                reachedCount = visit(word, w, layer, reachedCount);
+                if (w > 0) {
+                    reachedCount = visit(word - 1, w - 1, layer, reachedCount);
+                }
+                if (w + 1 < stride) {
+                    reachedCount = visit(word + 1, w + 1, layer, reachedCount);
+                }
+                if (word >= stride) {
+                    reachedCount = visit(word - stride, w, layer, reachedCount);
+                }
+                if (word + stride < open.length) {
+                    reachedCount = visit(word + stride, w, layer, reachedCount);
+                }
+            }
+            for (int a = 0; a < activeCount; a++) {
+                frontier[active[a]] = 0;
+            }
+            long[] swapWords = frontier;
+            frontier = next;
+            next = swapWords;
+            int[] swapActive = active;
+            active = nextActive;
+            nextActive = swapActive;
+            activeCount = reachedCount;
+            if (found) {
+                return firstTarget();
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * [Mutator] Adds to the next layer the cells of word i, the w-th of its row,
+     * that are next to a frontier cell; visiting a word again in the same layer
+     * adds nothing, since its new cells are then already visited.
+     *
+     * @return The new number of words in the next layer
+     */
+    private int visit (int i, int w, long[] layer, int reachedCount) {
+        long f = frontier[i], grown = f << 1 | f >>> 1;
+        if (w > 0) {
+            grown |= frontier[i - 1] >>> 63;
+        }
+        if (w + 1 < stride) {
+            grown |= frontier[i + 1] << 63;
+        }
+        if (i >= stride) {
+            grown |= frontier[i - stride];
+        }
+        if (i + stride < frontier.length) {
+            grown |= frontier[i + stride];
+        }
+        long reached = grown & open[i] & ~visited[i];
+        if (reached == 0) {
+            return reachedCount;
+        }
+        next[i] = reached;
+        visited[i] |= reached;
+        layer[i] |= reached;
+        found |= (reached & targets[i]) != 0;
+        nextActive[reachedCount] = i;
+        return reachedCount + 1;
+    }
+
+    /**
+     * @return A target cell in the frontier
+     */
+    private int firstTarget () {
+        for (int a = 0; a < activeCount; a++) {
+            int i = active[a];
+            long hit = frontier[i] & targets[i];
+            if (hit != 0) {
+                return (i / stride) * cols + ((i % stride) << 6) + Long.numberOfTrailingZeros(hit);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return The moves of a shortest path to the given cell, found by walking back
+     * through the layers to the start
+     */
+    private ArrayList<String> getPath (int cell) {
+        ArrayList<String> path = new ArrayList<>();
+        int depth = 0;
+        for (int k = 0; k < 3; k++) {
+            if ((layers[k][wordOf(cell)] & bitOf(cell)) != 0) {
+                depth = k;
+            }
+        }
+        // Walk back until the start, the only cell of layer 0 with no earlier neighbor
+        while (true) {
+            long[] previous = layers[(depth + 2) % 3];
+            int from = -1, move = MazeGrid.UP;
+            for (; move <= MazeGrid.RIGHT; move++) {
+                int neighbor = grid.adjacent(cell, move); // The start may be a wall
+                if (neighbor >= 0 && (previous[wordOf(neighbor)] & bitOf(neighbor)) != 0) {
+                    from = neighbor;
+                    break;
+                }
+            }
+            if (from < 0) {
+                break;
+            }
+            path.add(MazeGrid.action(MazeGrid.reverse(move)));
+            cell = from;
+            depth = (depth + 2) % 3;
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    private int wordOf (int cell) {
+        return (cell / cols) * stride + ((cell % cols) >>> 6);
+    }
+
+    private long bitOf (int cell) {
+        return 1L << (cell % cols);
+    }
+
+}
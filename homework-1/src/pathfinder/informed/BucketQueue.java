@@ -0,0 +1,201 @@
+package pathfinder.informed;
+
+import java.util.Arrays;
+
+/**
+ * Bucket queue of cell indices keyed by small non-negative integer priority.
+ * Since step costs are 1 or 3 and the block distance heuristic is integral and
+ * consistent, the f-values on an A* frontier span only a handful of consecutive
+ * integers, so cells are kept in one intrusive doubly-linked list per priority
+ * inside a ring of buckets, giving O(1) push, decrease-key, and (amortized) pop.
+ * The ring doubles whenever the spread of queued priorities outgrows it.
+ */
+public class BucketQueue implements Frontier {
+
+    // Fields
+    // -----------------------------------------------------------------------------
+    private final int[] keys, next, prev;
+    private int[] heads;
+    private int mask, size, minKey, maxKey;
+
+
+    // Constructor
+    // -----------------------------------------------------------------------------
+
+    /**
+     * Constructs a new, empty BucketQueue able to hold the cells [0, capacity).
+     *
+     * @param capacity Number of distinct cells, i.e., MazeGrid.size()
+     */
+    BucketQueue (int capacity) {
+        keys = new int[capacity];
+        next = new int[capacity];
+        prev = new int[capacity];
+        Arrays.fill(prev, -2);
+        heads = new int[16];
+        Arrays.fill(heads, -1);
+        mask = heads.length - 1;
+    }
+
+
+    // Methods
+    // -----------------------------------------------------------------------------
+
+    @Override
+    public boolean isEmpty () {
+        return size == 0;
+    }
+
+    @Override
+    public int size () {
+        return size;
+    }
+
+    /**
+     * @param cell Flat cell index
+     * @return Whether or not the given cell is currently queued; cells that are
+     * not queued have a prev link of -2
+     */
+    @Override
+    public boolean contains (int cell) {
+        return prev[cell] != -2;
+    }
+
+    @Override
+    public int getKey (int cell) {
+        return keys[cell];
+    }
+
+    /**
+     * Adds a cell that is not already in the queue.
+     *
+     * @param cell Flat cell index
+     * @param key Priority of the cell; smaller keys are popped first
+     */
+    @Override
+    public void push (int cell, int key) {
+        if (size == 0) {
+            minKey = maxKey = key;
+        } else {
+            ensureSpan(Math.min(minKey, key), Math.max(maxKey, key));
+            minKey = Math.min(minKey, key);
+            maxKey = Math.max(maxKey, key);
+        }
+        keys[cell] = key;
+        link(cell);
+        size++;
+    }
+
+    /**
+     * Lowers the priority of a cell already in the queue by moving it to the
+     * bucket of its new key; keys that are not smaller are ignored.
+     *
+     * @param cell Flat cell index currently queued
+     * @param key New, smaller priority of the cell
+     */
+    @Override
+    public void decreaseKey (int cell, int key) {
+        if (key < keys[cell]) {
+            unlink(cell);
+            ensureSpan(Math.min(minKey, key), maxKey);
+            minKey = Math.min(minKey, key);
+            keys[cell] = key;
+            link(cell);
+        }
+    }
+
+    /**
+     * Removes and returns a cell with the smallest key; among equal keys, the
+     * most recently queued cell is returned first.
+     *
+     * @return Flat cell index of a minimum
+     */
+    @Override
+    public int pop () {
+        int top = heads[peekKey() & mask];
+        unlink(top);
+        prev[top] = -2;
+        size--;
+        return top;
+    }
+
+    @Override
+    public int peekKey () {
+        while (heads[minKey & mask] < 0) {
+            minKey++;
+        }
+        return minKey;
+    }
+
+    /**
+     * [Mutator] Empties the queue in time proportional to the spread of its keys
+     * plus its current size.
+     */
+    @Override
+    public void clear () {
+        if (size > 0) {
+            for (int key = minKey; key <= maxKey; key++) {
+                for (int cell = heads[key & mask]; cell >= 0; cell = next[cell]) {
+                    prev[cell] = -2;
+                }
+                heads[key & mask] = -1;
+            }
+        }
+        size = 0;
+    }
+
+    /**
+     * Adds the given cell to the front of the bucket for its key.
+     */
+    private void link (int cell) {
+        int bucket = keys[cell] & mask;
+        next[cell] = heads[bucket];
+        prev[cell] = -1;
+        if (heads[bucket] >= 0) {
+            prev[heads[bucket]] = cell;
+        }
+        heads[bucket] = cell;
+    }
+
+    /**
+     * Removes the given cell from the bucket for its key.
+     */
+    private void unlink (int cell) {
+        if (prev[cell] >= 0) {
+            next[prev[cell]] = next[cell];
+        } else {
+            heads[keys[cell] & mask] = next[cell];
+        }
+        if (next[cell] >= 0) {
+            prev[next[cell]] = prev[cell];
+        }
+    }
+
+    /**
+     * Grows the ring of buckets, if needed, so that keys in [low, high] map to
+     * distinct buckets, and redistributes the queued cells into it.
+     */
+    private void ensureSpan (int low, int high) {
+        if (high - low <= mask) {
+            return;
+        }
+        int[] oldHeads = heads;
+        int oldMask = mask;
+        int length = oldHeads.length;
+        while (high - low >= length) {
+            length <<= 1;
+        }
+        heads = new int[length];
+        Arrays.fill(heads, -1);
+        mask = length - 1;
+        for (int key = minKey; key <= maxKey; key++) {
+            int cell = oldHeads[key & oldMask];
+            while (cell >= 0) {
+                int following = next[cell];
+                link(cell);
+                cell = following;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,59 @@
+package pathfinder.informed;
+
+/**
+ * Set of flat cell indices, used as the closed set of a Search; membership tests
+ * are O(1) and nothing is boxed, unlike a HashSet of MazeStates or Integers.
+ */
+public interface CellSet {
+
+    /**
+     * CellSet implementations that a search can be asked to use.
+     */
+    enum Kind {
+        /** BitCellSet: one bit per cell of the grid, for searches that touch much of it */
+        BITSET,
+        /** StampedCellSet: a 16-bit generation per cell of the grid, for sets that are
+         * cleared often, in O(1) */
+        STAMPED,
+        /** HashCellSet: an open-addressing table that grows with the cells added,
+         * for searches that touch little of a large grid */
+        HASH;
+
+        /**
+         * @param capacity Number of distinct cells, i.e., MazeGrid.size()
+         * @return A new, empty CellSet of this Kind
+         */
+        CellSet create (int capacity) {
+            switch (this) {
+            case HASH:
+                return new HashCellSet();
+            case STAMPED:
+                return new StampedCellSet(capacity);
+            default:
+                return new BitCellSet(capacity);
+            }
+        }
+    }
+
+    boolean contains (int cell);
+
+    /**
+     * [Mutator] Adds the given cell to this set.
+     *
+     * @param cell Flat cell index
+     * @return Whether or not the cell was newly added
+     */
+    boolean add (int cell);
+
+    /**
+     * [Mutator] Removes the given cell from this set, if present.
+     *
+     * @param cell Flat cell index
+     */
+    void remove (int cell);
+
+    int size ();
+
+    void clear ();
+
+}
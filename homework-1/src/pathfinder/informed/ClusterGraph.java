@@ -0,0 +1,404 @@
+package pathfinder.informed;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * The abstract graph of hierarchical pathfinding (HPA*): the maze is split into
+ * square clusters, every maximal run of open cells shared by two neighboring
+ * clusters (an entrance) contributes one or two transitions across the border,
+ * and the cells on either side of each transition become the graph's nodes.
+ * Nodes of the same cluster are joined by edges weighing their cheapest path
+ * inside the cluster, and the two cells of a transition by a single move, so
+ * a search over this small graph stands in for a search over the whole grid.
+ * <p>
+ * A ClusterGraph holds no reference to its maze and is Serializable, so that the
+ * preprocessing survives restarts via write and read; a checksum of the grid
+ * guards against loading it for a different maze. Once built or read, it is
+ * bound to that MazeGrid, and isCurrent tells whether the grid's terrain has
+ * changed since.
+ */
+public class ClusterGraph implements Serializable {
+
+    // Fields
+    // -----------------------------------------------------------------------------
+    private static final long serialVersionUID = 1L;
+    private static final int LONG_ENTRANCE = 6;
+    final int rows, cols, clusterSize, clusterRows, clusterCols;
+    private final long gridChecksum;
+    private transient MazeGrid grid;
+    private transient long gridVersion;
+
+    // Node ids are grouped by cluster: those of cluster c are clusterStarts[c] to
+    // clusterStarts[c + 1] - 1; each node's edges are edgeStarts[node] to
+    // edgeStarts[node + 1] - 1
+    final int[] nodeCells, clusterStarts, edgeStarts, edgeTargets, edgeCosts;
+
+
+    // Constructor
+    // -----------------------------------------------------------------------------
+
+    /**
+     * Constructs a new ClusterGraph over the given grid.
+     *
+     * @param grid The MazeGrid to preprocess
+     * @param clusterSize Side length of each (square) cluster in cells, at least 2
+     */
+    public ClusterGraph (MazeGrid grid, int clusterSize) {
+        if (clusterSize < 2) {
+            throw new IllegalArgumentException("Cluster size must be at least 2");
+        }
+        this.rows = grid.rows;
+        this.cols = grid.cols;
+        this.clusterSize = clusterSize;
+        this.clusterRows = (rows + clusterSize - 1) / clusterSize;
+        this.clusterCols = (cols + clusterSize - 1) / clusterSize;
+        this.gridChecksum = checksum(grid);
+        this.grid = grid;
+        this.gridVersion = grid.getVersion();
+
+        // Transitions across every vertical, then every horizontal, cluster border,
+        // as (cell, neighbor across the border) pairs
+        IntList transitions = new IntList();
+        for (int col = clusterSize - 1; col + 1 < cols; col += clusterSize) {
+            for (int row = 0; row < rows; row += clusterSize) {
+                addEntrances(grid, transitions, grid.index(col, row), cols, 1, Math.min(clusterSize, rows - row));
+            }
+        }
+        for (int row = clusterSize - 1; row + 1 < rows; row += clusterSize) {
+            for (int col = 0; col < cols; col += clusterSize) {
+                addEntrances(grid, transitions, grid.index(col, row), 1, cols, Math.min(clusterSize, cols - col));
+            }
+        }
+
+        // Nodes sorted by (cluster, cell), so that each cluster's are contiguous
+        long[] keys = new long[transitions.size];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = nodeKey(transitions.values[i]);
+        }
+        Arrays.sort(keys);
+        int nodes = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (i == 0 || keys[i] != keys[i - 1]) {
+                keys[nodes++] = keys[i];
+            }
+        }
+        keys = Arrays.copyOf(keys, nodes);
+        nodeCells = new int[nodes];
+        clusterStarts = new int[clusterRows * clusterCols + 1];
+        for (int node = 0; node < nodes; node++) {
+            nodeCells[node] = (int) keys[node];
+            clusterStarts[(int) (keys[node] >>> 32) + 1]++;
+        }
+        for (int c = 0; c < clusterRows * clusterCols; c++) {
+            clusterStarts[c + 1] += clusterStarts[c];
+        }
+
+        // Edges: one move across each transition, both ways, and the cheapest path
+        // inside the cluster between every ordered pair of its nodes
+        IntList from = new IntList(), to = new IntList(), costs = new IntList();
+        for (int i = 0; i < transitions.size; i += 2) {
+            int a = Arrays.binarySearch(keys, nodeKey(transitions.values[i])),
+                b = Arrays.binarySearch(keys, nodeKey(transitions.values[i + 1]));
+            from.add(a); to.add(b); costs.add(grid.getCost(nodeCells[b]));
+            from.add(b); to.add(a); costs.add(grid.getCost(nodeCells[a]));
+        }
+        LocalSearch local = new LocalSearch(grid, this);
+        for (int c = 0; c < clusterRows * clusterCols; c++) {
+            for (int a = clusterStarts[c]; a < clusterStarts[c + 1]; a++) {
+                local.run(c, new int[] {nodeCells[a]}, false);
+                for (int b = clusterStarts[c]; b < clusterStarts[c + 1]; b++) {
+                    int distance = local.getDistance(nodeCells[b]);
+                    if (b != a && distance != DistanceField.UNREACHABLE) {
+                        from.add(a); to.add(b); costs.add(distance);
+                    }
+                }
+            }
+        }
+
+        // Counting sort of the edges by source node
+        edgeStarts = new int[nodes + 1];
+        edgeTargets = new int[from.size];
+        edgeCosts = new int[from.size];
+        for (int i = 0; i < from.size; i++) {
+            edgeStarts[from.values[i] + 1]++;
+        }
+        for (int node = 0; node < nodes; node++) {
+            edgeStarts[node + 1] += edgeStarts[node];
+        }
+        int[] fill = Arrays.copyOf(edgeStarts, nodes);
+        for (int i = 0; i < from.size; i++) {
+            int slot = fill[from.values[i]]++;
+            edgeTargets[slot] = to.values[i];
+            edgeCosts[slot] = costs.values[i];
+        }
+    }
+
+
+    // Methods
+    // -----------------------------------------------------------------------------
+
+    /**
+     * Writes this ClusterGraph to the given file with Java serialization.
+     *
+     * @param file Path of the file to write
+     * @throws IOException If the file cannot be written
+     */
+    public void write (Path file) throws IOException {
+        try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeObject(this);
+        }
+    }
+
+    /**
+     * Reads a ClusterGraph written by write, checking that it was built for the
+     * given grid.
+     *
+     * @param file Path of the file to read
+     * @param grid The MazeGrid the graph will be searched with
+     * @return The ClusterGraph in the file
+     * @throws IOException If the file cannot be read, does not hold a ClusterGraph,
+     * or holds one built for a different maze
+     */
+    public static ClusterGraph read (Path file, MazeGrid grid) throws IOException {
+        try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            Object graph = in.readObject();
+            long version = grid.getVersion();
+            if (!(graph instanceof ClusterGraph) || !((ClusterGraph) graph).matches(grid)) {
+                throw new InvalidObjectException("File does not hold a ClusterGraph of this maze");
+            }
+            ClusterGraph read = (ClusterGraph) graph;
+            read.grid = grid;
+            read.gridVersion = version;
+            return read;
+        } catch (ClassNotFoundException e) {
+            throw new InvalidObjectException(e.getMessage());
+        }
+    }
+
+    /**
+     * @param grid A MazeGrid
+     * @return Whether this ClusterGraph was built for a maze identical to grid
+     */
+    public boolean matches (MazeGrid grid) {
+        return grid.rows == rows && grid.cols == cols && checksum(grid) == gridChecksum;
+    }
+
+    /**
+     * @param grid A MazeGrid
+     * @return Whether this ClusterGraph was built or read for grid itself, whose
+     * terrain is unchanged since
+     */
+    public boolean isCurrent (MazeGrid grid) {
+        return this.grid == grid && grid.getVersion() == gridVersion;
+    }
+
+    /**
+     * @return The number of nodes in the abstract graph
+     */
+    public int getNodeCount () {
+        return nodeCells.length;
+    }
+
+    /**
+     * @param cell Flat index of a cell
+     * @return Index of the cluster holding the cell
+     */
+    int clusterOf (int cell) {
+        return ((cell / cols) / clusterSize) * clusterCols + (cell % cols) / clusterSize;
+    }
+
+    private long nodeKey (int cell) {
+        return ((long) clusterOf(cell) << 32) | cell;
+    }
+
+    /**
+     * Finds the entrances along one border segment, whose cells are first, first +
+     * along, ..., each facing the cell at offset across on the other side, and
+     * records the transitions of each.
+     */
+    private static void addEntrances (MazeGrid grid, IntList transitions, int first, int along, int across,
+                                      int length) {
+        int runStart = -1;
+        for (int i = 0; i <= length; i++) {
+            int cell = first + i * along;
+            boolean open = i < length && !grid.isWall(cell) && !grid.isWall(cell + across);
+            if (open && runStart < 0) {
+                runStart = i;
+            } else if (!open && runStart >= 0) {
+                // Short entrances get one transition in the middle, long ones one
+                // at each end
+                if (i - runStart < LONG_ENTRANCE) {
+                    int middle = first + (runStart + (i - runStart) / 2) * along;
+                    transitions.add(middle); transitions.add(middle + across);
+                } else {
+                    int start = first + runStart * along, end = first + (i - 1) * along;
+                    transitions.add(start); transitions.add(start + across);
+                    transitions.add(end); transitions.add(end + across);
+                }
+                runStart = -1;
+            }
+        }
+    }
+
+    static long checksum (MazeGrid grid) {
+        long hash = ((long) grid.rows << 32) ^ grid.cols;
+        for (int i = 0; i < grid.getWordCount(); i++) {
+            hash = Long.rotateLeft((hash ^ grid.getWord(i)) * 0x9E3779B97F4A7C15L, 31);
+        }
+        return hash;
+    }
+
+    /**
+     * Growable int array used while building the graph.
+     */
+    static class IntList {
+
+        int[] values = new int[16];
+        int size;
+
+        void add (int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, 2 * size);
+            }
+            values[size++] = value;
+        }
+
+    }
+
+    /**
+     * Dijkstra confined to one cluster of a ClusterGraph, run either forward from
+     * sources (distance = cost of the cheapest path from a source) or backward
+     * from them (distance = cost of the cheapest path to a source), with the moves
+     * needed to turn a distance back into a path. Its arrays are sized for one
+     * cluster and reused between runs.
+     */
+    static class LocalSearch {
+
+        private final MazeGrid grid;
+        private final ClusterGraph graph;
+        private final int[] distances, neighbors = new int[4];
+        private final byte[] moves;
+        private final IndexedHeap frontier;
+        private int col0, row0, width, height;
+        private boolean backward;
+
+        LocalSearch (MazeGrid grid, ClusterGraph graph) {
+            int area = graph.clusterSize * graph.clusterSize;
+            this.grid = grid;
+            this.graph = graph;
+            this.distances = new int[area];
+            this.moves = new byte[area];
+            this.frontier = new IndexedHeap(area);
+        }
+
+        /**
+         * [Mutator] Computes the distances of every cell in the given cluster from
+         * (or, if backward, to) the nearest of the given source cells.
+         *
+         * @param cluster Index of the cluster to search
+         * @param sources Flat indices of the source cells, all inside the cluster
+         * @param backward Whether to measure distances to, rather than from, the sources
+         */
+        void run (int cluster, int[] sources, boolean backward) {
+            this.backward = backward;
+            col0 = (cluster % graph.clusterCols) * graph.clusterSize;
+            row0 = (cluster / graph.clusterCols) * graph.clusterSize;
+            width = Math.min(graph.clusterSize, graph.cols - col0);
+            height = Math.min(graph.clusterSize, graph.rows - row0);
+            Arrays.fill(distances, 0, width * height, DistanceField.UNREACHABLE);
+            frontier.clear();
+            for (int source : sources) {
+                int local = toLocal(source);
+                if (distances[local] != 0) {
+                    distances[local] = 0;
+                    frontier.push(local, 0);
+                }
+            }
+
+            while (!frontier.isEmpty()) {
+                int local = frontier.pop(), cell = toCell(local);
+                // Forward, each move costs the cell it enters; backward, the cell
+                // being expanded is the one entered
+                int stepCost = backward ? grid.getCost(cell) : 0;
+                grid.getNeighbors(cell, neighbors);
+                for (int move = MazeGrid.UP; move <= MazeGrid.RIGHT; move++) {
+                    int next = neighbors[move];
+                    if (next < 0 || !contains(next)) {
+                        continue;
+                    }
+                    int nextLocal = toLocal(next),
+                        distance = distances[local] + (backward ? stepCost : grid.getCost(next));
+                    if (distance < distances[nextLocal]) {
+                        boolean queued = distances[nextLocal] != DistanceField.UNREACHABLE;
+                        distances[nextLocal] = distance;
+                        moves[nextLocal] = (byte) (backward ? MazeGrid.reverse(move) : move);
+                        if (queued) {
+                            frontier.decreaseKey(nextLocal, distance);
+                        } else {
+                            frontier.push(nextLocal, distance);
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * @param cell Flat index of a cell in the last cluster searched
+         * @return The cell's distance from the last run, or DistanceField.UNREACHABLE
+         */
+        int getDistance (int cell) {
+            return contains(cell) ? distances[toLocal(cell)] : DistanceField.UNREACHABLE;
+        }
+
+        /**
+         * Appends the actions of the cheapest path found by the last run that ends
+         * (forward) or starts (backward) at the given, reachable cell.
+         *
+         * @param cell Flat index of a cell in the last cluster searched
+         * @param path The list of actions to append to
+         */
+        void appendPath (int cell, ArrayList<String> path) {
+            if (backward) {
+                while (distances[toLocal(cell)] > 0) {
+                    int move = moves[toLocal(cell)];
+                    path.add(MazeGrid.action(move));
+                    cell = grid.step(cell, move);
+                }
+                return;
+            }
+            int end = path.size();
+            while (distances[toLocal(cell)] > 0) {
+                int move = moves[toLocal(cell)];
+                path.add(MazeGrid.action(move));
+                cell = grid.adjacent(cell, MazeGrid.reverse(move)); // The start may be a wall
+            }
+            Collections.reverse(path.subList(end, path.size()));
+        }
+
+        private boolean contains (int cell) {
+            int col = grid.col(cell) - col0, row = grid.row(cell) - row0;
+            return col >= 0 && col < width && row >= 0 && row < height;
+        }
+
+        private int toLocal (int cell) {
+            return (grid.row(cell) - row0) * width + grid.col(cell) - col0;
+        }
+
+        private int toCell (int local) {
+            return grid.index(col0 + local % width, row0 + local / width);
+        }
+
+    }
+
+}
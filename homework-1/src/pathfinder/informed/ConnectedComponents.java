@@ -0,0 +1,217 @@
+package pathfinder.informed;
+
+import java.util.Arrays;
+
+/**
+ * Labels every non-wall cell of a MazeGrid with the id of its connected
+ * component, so that whether two cells can reach each other is answered in O(1)
+ * rather than by a search that exhausts the reachable cells before giving up.
+ * <p>
+ * Cells are labeled in one scan, by a union-find over cell indices in which every
+ * root is the least index of its set, and the sets are then numbered in order.
+ * Each component also records whether it holds a Goal cell. Opening a wall later
+ * merges the components around it through a second, small union-find over
+ * component ids. Walling off a cell may split a component, which union-find cannot
+ * undo, so the labels are then rebuilt, lazily, by the next query.
+ * <p>
+ * A MazeGrid labels its ConnectedComponents only when asked, through getComponents,
+ * and keeps them up to date through setTerrain from then on. Searches consult them
+ * only while they are current, and never wait on a re-labeling.
+ */
+public class ConnectedComponents {
+
+    // Fields
+    // -----------------------------------------------------------------------------
+    public static final int NONE = -1;
+    private final MazeGrid grid;
+    private int[] labels, parents;
+    private boolean[] goals;
+    private int count;
+    private boolean stale;
+
+
+    // Constructor
+    // -----------------------------------------------------------------------------
+
+    /**
+     * Constructs the ConnectedComponents of the given grid, labeling every cell.
+     *
+     * @param grid The MazeGrid whose cells are labeled
+     */
+    ConnectedComponents (MazeGrid grid) {
+        this.grid = grid;
+        label();
+    }
+
+
+    // Methods
+    // -----------------------------------------------------------------------------
+
+    /**
+     * @param cell Flat cell index
+     * @return The id of the component holding the given cell, or NONE if it is a wall
+     */
+    public synchronized int getComponent (int cell) {
+        if (stale) {
+            label();
+        }
+        return (labels[cell] == NONE) ? NONE : find(labels[cell]);
+    }
+
+    /**
+     * @param component A component id returned by getComponent
+     * @return Whether or not the component holds a Goal cell
+     */
+    public synchronized boolean hasGoal (int component) {
+        return goals[find(component)];
+    }
+
+    /**
+     * @return Whether the labels hold without being rebuilt, i.e., no wall was
+     * added since they were last built
+     */
+    synchronized boolean isCurrent () {
+        return !stale;
+    }
+
+    /**
+     * @return The number of components; ids are not contiguous after cells open
+     */
+    public synchronized int getCount () {
+        if (stale) {
+            label();
+        }
+        int roots = 0;
+        for (int component = 0; component < count; component++) {
+            if (parents[component] == component) {
+                roots++;
+            }
+        }
+        return roots;
+    }
+
+    /**
+     * [Mutator] Records a change to the terrain of a cell, which must already be
+     * stored in the grid.
+     *
+     * @param cell Flat cell index
+     * @param previous The cell's code before the change
+     * @param code The cell's code after the change
+     */
+    synchronized void terrainChanged (int cell, int previous, int code) {
+        if (stale || (previous == MazeGrid.WALL) == (code == MazeGrid.WALL)) {
+            return; // Mud and open cells connect alike
+        }
+        if (code == MazeGrid.WALL) {
+            stale = true;
+            return;
+        }
+        int component = NONE;
+        for (int move = MazeGrid.UP; move <= MazeGrid.RIGHT; move++) {
+            int neighbor = grid.step(cell, move);
+            if (neighbor < 0) {
+                continue;
+            }
+            int other = find(labels[neighbor]);
+            if (component == NONE) {
+                component = other;
+            } else if (other != component) {
+                // Keep the lesser id as the root, as in label
+                int root = Math.min(component, other), child = Math.max(component, other);
+                parents[child] = root;
+                goals[root] |= goals[child];
+                component = root;
+            }
+        }
+        if (component == NONE) {
+            component = addComponent();
+        }
+        labels[cell] = component;
+    }
+
+    /**
+     * [Mutator] Labels every cell from scratch.
+     */
+    private void label () {
+        int size = grid.size(), cols = grid.cols;
+        labels = (labels == null) ? new int[size] : labels;
+        // First pass: labels[cell] is the cell's parent in a union-find over cells,
+        // in which a parent always has a lesser index than its child
+        for (int cell = 0; cell < size; cell++) {
+            if (grid.isWall(cell)) {
+                labels[cell] = NONE;
+                continue;
+            }
+            labels[cell] = cell;
+            if (cell % cols > 0 && labels[cell - 1] != NONE) {
+                union(cell - 1, cell);
+            }
+            if (cell >= cols && labels[cell - cols] != NONE) {
+                union(cell - cols, cell);
+            }
+        }
+        // Second pass: number the roots in order, stored as -2 - id so that they
+        // cannot be mistaken for parents; every parent precedes its child, so it
+        // has already been numbered when the child is reached
+        parents = new int[16];
+        goals = new boolean[16];
+        count = 0;
+        for (int cell = 0; cell < size; cell++) {
+            int parent = labels[cell];
+            if (parent == NONE) {
+                continue;
+            }
+            int component = (parent == cell) ? addComponent() : -2 - labels[parent];
+            labels[cell] = -2 - component;
+            goals[component] |= grid.isGoal(cell);
+        }
+        for (int cell = 0; cell < size; cell++) {
+            if (labels[cell] != NONE) {
+                labels[cell] = -2 - labels[cell];
+            }
+        }
+        stale = false;
+    }
+
+    /**
+     * [Mutator] Joins the sets of two open cells during the first pass of label.
+     */
+    private void union (int a, int b) {
+        int rootA = findCell(a), rootB = findCell(b);
+        if (rootA != rootB) {
+            labels[Math.max(rootA, rootB)] = Math.min(rootA, rootB);
+        }
+    }
+
+    private int findCell (int cell) {
+        while (labels[cell] != cell) {
+            labels[cell] = labels[labels[cell]]; // Path halving
+            cell = labels[cell];
+        }
+        return cell;
+    }
+
+    private int find (int component) {
+        while (parents[component] != component) {
+            parents[component] = parents[parents[component]];
+            component = parents[component];
+        }
+        return component;
+    }
+
+    /**
+     * [Mutator] Adds a new component, as its own root.
+     *
+     * @return The new component's id
+     */
+    private int addComponent () {
+        if (count == parents.length) {
+            parents = Arrays.copyOf(parents, 2 * count);
+            goals = Arrays.copyOf(goals, 2 * count);
+        }
+        parents[count] = count;
+        goals[count] = false;
+        return count++;
+    }
+
+}
@@ -0,0 +1,230 @@
+package pathfinder.informed;
+
+import java.util.Arrays;
+
+/**
+ * A MazeProblem's maze with its corridors contracted: every open cell with exactly
+ * two open neighbors is folded into a weighted edge between the cells at the ends
+ * of its corridor, so that only junctions, dead ends, and the problem's initial,
+ * Key, and Goal cells remain as nodes. Each edge keeps the moves along its
+ * corridor, so that a path over the graph expands back into moves.
+ * <p>
+ * Before contracting, dead ends are pruned in the same pass: a cell with at most
+ * one open neighbor that is not the initial, Key, or a Goal cell can only be
+ * entered by a path that turns back, so it is removed, and its neighbor checked
+ * in turn. Whole dead-end branches of a maze thus vanish, and shortest paths over
+ * what is left are shortest paths over the maze.
+ * <p>
+ * A CorridorGraph describes the terrain of its problem's grid when it was built;
+ * isCurrent tells whether the terrain has changed since.
+ */
+public class CorridorGraph {
+
+    // Fields
+    // -----------------------------------------------------------------------------
+    final MazeProblem problem;
+    private final MazeGrid grid;
+    private final long gridVersion;
+    private final int prunedCount;
+
+    // Nodes are numbered in cell order; each node's edges are edgeStarts[node] to
+    // edgeStarts[node + 1] - 1, and each edge's moves are moves[moveStarts[edge]]
+    // to moves[moveStarts[edge + 1] - 1]
+    final int[] nodeCells, edgeStarts, edgeTargets, edgeCosts, moveStarts;
+    final byte[] moves;
+
+
+    // Constructor
+    // -----------------------------------------------------------------------------
+
+    /**
+     * Constructs the CorridorGraph of the given problem's maze.
+     *
+     * @param problem A MazeProblem that specifies the maze, actions, transitions.
+     */
+    public CorridorGraph (MazeProblem problem) {
+        this.problem = problem;
+        this.grid = problem.getGrid();
+        this.gridVersion = grid.getVersion();
+        int size = grid.size();
+        boolean[] special = new boolean[size], pruned = new boolean[size];
+        byte[] degrees = new byte[size];
+        for (int goal : problem.getGoalCells()) {
+            special[goal] = true;
+        }
+        if (problem.KEY_CELL >= 0) {
+            special[problem.KEY_CELL] = true;
+        }
+        special[problem.INITIAL_CELL] = true;
+        int[] exits = new int[4];
+        for (int cell = 0; cell < size; cell++) {
+            if (special[cell] && grid.isWall(cell)) {
+                // A special cell on a wall, e.g., a start, can be left but not entered,
+                // so its neighbors do not count it as theirs; keep them from being
+                // pruned as dead ends or folded into corridors
+                grid.getNeighbors(cell, exits);
+                for (int exit : exits) {
+                    if (exit >= 0) {
+                        special[exit] = true;
+                    }
+                }
+            }
+        }
+
+        // Dead-end pruning: each cell is pushed at most once, when its count of
+        // unpruned neighbors first drops to 1 or below
+        int[] neighbors = new int[4], deadEnds = new int[16];
+        int top = 0, prunedCells = 0;
+        for (int cell = 0; cell < size; cell++) {
+            if (grid.isWall(cell) && !special[cell]) {
+                pruned[cell] = true;
+                continue;
+            }
+            degrees[cell] = (byte) grid.getNeighbors(cell, neighbors);
+            if (degrees[cell] <= 1 && !special[cell]) {
+                deadEnds = push(deadEnds, top++, cell);
+            }
+        }
+        while (top > 0) {
+            int cell = deadEnds[--top];
+            pruned[cell] = true;
+            prunedCells++;
+            for (int move = MazeGrid.UP; move <= MazeGrid.RIGHT; move++) {
+                int next = grid.step(cell, move);
+                if (next >= 0 && !pruned[next] && --degrees[next] == 1 && !special[next]) {
+                    deadEnds = push(deadEnds, top++, next);
+                }
+            }
+        }
+        this.prunedCount = prunedCells;
+
+        // Nodes: every unpruned cell that is not inside a corridor
+        int nodes = 0;
+        for (int cell = 0; cell < size; cell++) {
+            if (isNode(cell, special, pruned, degrees)) {
+                nodes++;
+            }
+        }
+        nodeCells = new int[nodes];
+        for (int cell = 0, node = 0; cell < size; cell++) {
+            if (isNode(cell, special, pruned, degrees)) {
+                nodeCells[node++] = cell;
+            }
+        }
+
+        // Edges: walk each corridor leaving each node to the node at its other end;
+        // a corridor's cost is that of entering each of its cells and the last node
+        ClusterGraph.IntList targets = new ClusterGraph.IntList(), costs = new ClusterGraph.IntList(),
+                starts = new ClusterGraph.IntList();
+        byte[] corridorMoves = new byte[64];
+        int moveCount = 0;
+        edgeStarts = new int[nodes + 1];
+        for (int node = 0; node < nodes; node++) {
+            edgeStarts[node] = targets.size;
+            int from = nodeCells[node];
+            for (int first = MazeGrid.UP; first <= MazeGrid.RIGHT; first++) {
+                int cell = grid.step(from, first), move = first;
+                if (cell < 0 || pruned[cell]) {
+                    continue;
+                }
+                int moveStart = moveCount, cost = grid.getCost(cell), entered = cell;
+                corridorMoves = push(corridorMoves, moveCount++, move);
+                while (!isNode(cell, special, pruned, degrees)) {
+                    // A corridor cell has one unpruned neighbor besides the one entered from
+                    for (int turn = MazeGrid.UP; turn <= MazeGrid.RIGHT; turn++) {
+                        int next = grid.step(cell, turn);
+                        if (turn != MazeGrid.reverse(move) && next >= 0 && !pruned[next]) {
+                            cell = next;
+                            move = turn;
+                            break;
+                        }
+                    }
+                    cost += grid.getCost(cell);
+                    corridorMoves = push(corridorMoves, moveCount++, move);
+                    if (cell == entered) {
+                        break; // A ring of corridor cells that never reaches a node
+                    }
+                }
+                if (cell == from || !isNode(cell, special, pruned, degrees)) {
+                    moveCount = moveStart; // A loop back to its own node is never on a shortest path
+                    continue;
+                }
+                targets.add(Arrays.binarySearch(nodeCells, cell));
+                costs.add(cost);
+                starts.add(moveStart);
+            }
+        }
+        edgeStarts[nodes] = targets.size;
+        starts.add(moveCount);
+        edgeTargets = Arrays.copyOf(targets.values, targets.size);
+        edgeCosts = Arrays.copyOf(costs.values, costs.size);
+        moveStarts = Arrays.copyOf(starts.values, starts.size);
+        moves = Arrays.copyOf(corridorMoves, moveCount);
+    }
+
+
+    // Methods
+    // -----------------------------------------------------------------------------
+
+    /**
+     * @return Whether the grid's terrain is unchanged since this graph was built
+     */
+    public boolean isCurrent () {
+        return grid.getVersion() == gridVersion;
+    }
+
+    /**
+     * @return The number of nodes, i.e., of cells left after pruning that are not
+     * inside a corridor
+     */
+    public int getNodeCount () {
+        return nodeCells.length;
+    }
+
+    /**
+     * @return The number of directed edges; each corridor contributes one each way
+     */
+    public int getEdgeCount () {
+        return edgeTargets.length;
+    }
+
+    /**
+     * @return The number of open cells removed by dead-end pruning
+     */
+    public int getPrunedCount () {
+        return prunedCount;
+    }
+
+    /**
+     * @param cell Flat cell index
+     * @return The node at the given cell, or a negative number if it is not a node
+     */
+    int nodeOf (int cell) {
+        return Arrays.binarySearch(nodeCells, cell);
+    }
+
+    private static boolean isNode (int cell, boolean[] special, boolean[] pruned, byte[] degrees) {
+        return !pruned[cell] && (special[cell] || degrees[cell] != 2);
+    }
+
+    /**
+     * @return The given array, or a copy twice its length if it is full, with value
+     * stored at index i
+     */
+    private static int[] push (int[] values, int i, int value) {
+        if (i == values.length) {
+            values = Arrays.copyOf(values, 2 * i);
+        }
+        values[i] = value;
+        return values;
+    }
+
+    private static byte[] push (byte[] values, int i, int value) {
+        if (i == values.length) {
+            values = Arrays.copyOf(values, 2 * i);
+        }
+        values[i] = (byte) value;
+        return values;
+    }
+
+}
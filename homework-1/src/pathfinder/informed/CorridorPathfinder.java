@@ -0,0 +1,157 @@
+package pathfinder.informed;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * A* over a CorridorGraph: each leg of a query searches the contracted graph,
+ * whose nodes include the initial, Key, and Goal cells, and the edges of the path
+ * that is found are expanded back into the moves along their corridors. Since
+ * contraction and dead-end pruning keep every shortest path, the solutions are
+ * optimal, as with Pathfinder.solve, while a maze of long corridors is searched
+ * junction to junction rather than cell by cell.
+ */
+public class CorridorPathfinder {
+
+    // Fields
+    // -----------------------------------------------------------------------------
+    private static final int NONE = -1;
+    private final MazeProblem problem;
+    private final CorridorGraph graph;
+    private final int[] pastCosts, parents, parentEdges;
+    private final boolean[] closed;
+    private final IndexedHeap frontier;
+
+
+    // Constructor
+    // -----------------------------------------------------------------------------
+
+    /**
+     * Constructs a new CorridorPathfinder for queries on the given problem.
+     *
+     * @param problem A MazeProblem that specifies the maze, actions, transitions.
+     * @param graph The CorridorGraph of the problem
+     */
+    private CorridorPathfinder (MazeProblem problem, CorridorGraph graph) {
+        int nodes = graph.getNodeCount();
+        this.problem = problem;
+        this.graph = graph;
+        this.pastCosts = new int[nodes];
+        this.parents = new int[nodes];
+        this.parentEdges = new int[nodes];
+        this.closed = new boolean[nodes];
+        this.frontier = new IndexedHeap(nodes);
+    }
+
+
+    // Methods
+    // -----------------------------------------------------------------------------
+
+    /**
+     * Given a MazeProblem, contracts its maze into a CorridorGraph and returns the
+     * optimal solution found by searching that graph.
+     *
+     * @param problem A MazeProblem that specifies the maze, actions, transitions.
+     * @return An ArrayList of Strings representing actions that lead from the initial to
+     * the goal state, of the format: ["R", "R", "L", ...], or null if there is none
+     */
+    public static ArrayList<String> solve (MazeProblem problem) {
+        return solve(problem, new CorridorGraph(problem));
+    }
+
+    /**
+     * Given a MazeProblem and its CorridorGraph, returns the optimal solution found
+     * by searching the graph.
+     *
+     * @param problem A MazeProblem that specifies the maze, actions, transitions.
+     * @param graph The CorridorGraph built for problem
+     * @return An ArrayList of Strings representing actions that lead from the initial to
+     * the goal state, of the format: ["R", "R", "L", ...], or null if there is none
+     * @throws IllegalArgumentException If graph was built for another problem, or
+     * the terrain has changed since it was built
+     */
+    public static ArrayList<String> solve (MazeProblem problem, CorridorGraph graph) {
+        if (graph.problem != problem || !graph.isCurrent()) {
+            throw new IllegalArgumentException("CorridorGraph not built for this problem and terrain");
+        }
+        if (problem.KEY_STATE == null) {
+            return null;
+        }
+        CorridorPathfinder search = new CorridorPathfinder(problem, graph);
+        ArrayList<String> pathSoln = search.searchLeg(graph.nodeOf(problem.INITIAL_CELL), false);
+        if (pathSoln == null) {
+            return null;
+        }
+        ArrayList<String> keyToGoal = search.searchLeg(graph.nodeOf(problem.KEY_CELL), true);
+        if (keyToGoal == null) {
+            return null;
+        }
+        pathSoln.addAll(keyToGoal);
+        return pathSoln;
+    }
+
+    /**
+     * Finds a path from the given node to the nearest objective: the Key if
+     * foundKey is false, else a Goal.
+     */
+    private ArrayList<String> searchLeg (int start, boolean foundKey) {
+        Arrays.fill(pastCosts, DistanceField.UNREACHABLE);
+        Arrays.fill(closed, false);
+        frontier.clear();
+        int heuristic = problem.getDistance(graph.nodeCells[start], foundKey);
+        if (heuristic == DistanceField.UNREACHABLE) {
+            return null;
+        }
+        pastCosts[start] = 0;
+        parents[start] = NONE;
+        frontier.push(start, heuristic);
+
+        while (!frontier.isEmpty()) {
+            int node = frontier.pop(), cell = graph.nodeCells[node];
+            if (foundKey ? problem.isGoal(cell) : cell == problem.KEY_CELL) {
+                return getPath(node);
+            }
+            closed[node] = true;
+            for (int edge = graph.edgeStarts[node]; edge < graph.edgeStarts[node + 1]; edge++) {
+                int next = graph.edgeTargets[edge], pastCost = pastCosts[node] + graph.edgeCosts[edge];
+                if (closed[next] || pastCost >= pastCosts[next]) {
+                    continue;
+                }
+                int futureCost = problem.getDistance(graph.nodeCells[next], foundKey);
+                if (futureCost == DistanceField.UNREACHABLE) {
+                    continue;
+                }
+                boolean queued = pastCosts[next] != DistanceField.UNREACHABLE;
+                pastCosts[next] = pastCost;
+                parents[next] = node;
+                parentEdges[next] = edge;
+                if (queued) {
+                    frontier.decreaseKey(next, pastCost + futureCost);
+                } else {
+                    frontier.push(next, pastCost + futureCost);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return The moves along every corridor of the path to the given node, found
+     * by following each node's parent back to the start of the leg
+     */
+    private ArrayList<String> getPath (int node) {
+        ArrayList<Integer> edges = new ArrayList<>();
+        for (; parents[node] != NONE; node = parents[node]) {
+            edges.add(parentEdges[node]);
+        }
+        ArrayList<String> path = new ArrayList<>();
+        for (int i = edges.size() - 1; i >= 0; i--) {
+            int edge = edges.get(i);
+            for (int m = graph.moveStarts[edge]; m < graph.moveStarts[edge + 1]; m++) {
+                path.add(MazeGrid.action(graph.moves[m]));
+            }
+        }
+        return path;
+    }
+
+}
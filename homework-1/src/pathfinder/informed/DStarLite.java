@@ -0,0 +1,451 @@
+package pathfinder.informed;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Incremental replanning with D* Lite for an agent moving through a maze whose
+ * terrain changes at runtime. Each leg of the problem (agent to key, then key to
+ * the nearest goal) is searched backward from its objectives toward its start,
+ * so that as the agent moves and cells change near it, only the part of the
+ * previous search that the changes invalidate is repaired.
+ * <p>
+ * Terrain changes must be made through setCell to be repaired incrementally; if
+ * the grid changes any other way, the next plan starts over from scratch.
+ */
+public class DStarLite {
+
+    // Fields
+    // -----------------------------------------------------------------------------
+    private static final int INFINITE = Integer.MAX_VALUE;
+    private final MazeProblem problem;
+    private final MazeGrid grid;
+    private Leg keyLeg, goalLeg;
+    private int agent;
+    private boolean hasKey;
+    private long syncedVersion;
+
+
+    // Constructor
+    // -----------------------------------------------------------------------------
+
+    /**
+     * Constructs a new DStarLite planner for an agent starting at the problem's
+     * initial state.
+     *
+     * @param problem A MazeProblem that specifies the maze, actions, transitions.
+     */
+    public DStarLite (MazeProblem problem) {
+        this.problem = problem;
+        this.grid = problem.getGrid();
+        this.agent = problem.INITIAL_CELL;
+        this.hasKey = agent == problem.KEY_CELL;
+        if (problem.KEY_STATE != null) {
+            reset();
+        }
+    }
+
+
+    // Methods
+    // -----------------------------------------------------------------------------
+
+    /**
+     * Returns a cheapest path from the agent's current position to a goal, via the
+     * key unless it has been collected, repairing the previous plan as needed.
+     *
+     * @return An ArrayList of Strings representing actions that lead from the agent to
+     * a goal state, of the format: ["R", "R", "L", ...], or null if there is none
+     */
+    public ArrayList<String> plan () {
+        if (problem.KEY_STATE == null) {
+            return null;
+        }
+        if (grid.getVersion() != syncedVersion) {
+            reset();
+        }
+        ArrayList<String> path = new ArrayList<>();
+        if (!hasKey && !keyLeg.appendPath(path)) {
+            return null;
+        }
+        return goalLeg.appendPath(path) ? path : null;
+    }
+
+    /**
+     * [Mutator] Moves the agent one step, collecting the key if it steps onto it.
+     *
+     * @param action One of "U", "D", "L", "R"
+     * @throws IllegalArgumentException If the move would leave the maze or enter a wall
+     */
+    public void move (String action) {
+        int next = grid.step(agent, MazeGrid.move(action));
+        if (next < 0) {
+            throw new IllegalArgumentException("Agent cannot move " + action);
+        }
+        agent = next;
+        if (!hasKey && agent == problem.KEY_CELL) {
+            hasKey = true;
+        }
+        if (keyLeg != null) {
+            keyLeg.start = agent;
+            goalLeg.start = hasKey ? agent : problem.KEY_CELL;
+        }
+    }
+
+    /**
+     * [Mutator] Changes the terrain of a cell, as MazeGrid.setTerrain, and records
+     * the edge costs that changed so the next plan repairs only what they affect.
+     *
+     * @param state The MazeState (col, row) of the cell to change
+     * @param c The new terrain, one of '.', 'M', 'X'
+     */
+    public void setCell (MazeState state, char c) {
+        int cell = problem.toCell(state);
+        int[] before = new int[8], after = new int[8];
+        edgeCosts(cell, before);
+        long version = grid.getVersion();
+        grid.setTerrain(cell, c);
+        if (keyLeg == null || version != syncedVersion || grid.getVersion() != version + 1) {
+            return; // Changed behind our back as well: the next plan starts over
+        }
+        syncedVersion = grid.getVersion();
+        edgeCosts(cell, after);
+        keyLeg.updateEdges(cell, before, after);
+        goalLeg.updateEdges(cell, before, after);
+    }
+
+    /**
+     * @return The agent's current position
+     */
+    public MazeState getAgent () {
+        return problem.toState(agent);
+    }
+
+    /**
+     * @return Whether the agent has collected the key
+     */
+    public boolean hasKey () {
+        return hasKey;
+    }
+
+    /**
+     * [Mutator] Discards both legs' searches, starting them over from scratch.
+     */
+    private void reset () {
+        syncedVersion = grid.getVersion();
+        keyLeg = new Leg(false, new int[] {problem.KEY_CELL}, agent);
+        goalLeg = new Leg(true, problem.getGoalCells(), hasKey ? agent : problem.KEY_CELL);
+    }
+
+    /**
+     * Fills costs with the cost of each edge into the given cell, from its neighbor
+     * in direction move (costs[move]), and out of it (costs[4 + move]).
+     */
+    private void edgeCosts (int cell, int[] costs) {
+        for (int move = MazeGrid.UP; move <= MazeGrid.RIGHT; move++) {
+            int neighbor = neighbor(cell, move);
+            costs[move] = (neighbor < 0) ? INFINITE : cost(neighbor, cell);
+            costs[4 + move] = (neighbor < 0) ? INFINITE : cost(cell, neighbor);
+        }
+    }
+
+    /**
+     * @return The cell adjacent to the given one in direction move, whatever its
+     * terrain, or -1 if that would leave the grid
+     */
+    private int neighbor (int cell, int move) {
+        int col = grid.col(cell) + (move == MazeGrid.RIGHT ? 1 : move == MazeGrid.LEFT ? -1 : 0),
+            row = grid.row(cell) + (move == MazeGrid.DOWN ? 1 : move == MazeGrid.UP ? -1 : 0);
+        return grid.inBounds(col, row) ? grid.index(col, row) : -1;
+    }
+
+    /**
+     * @return The cost of moving from one cell into an adjacent one; only the cell
+     * entered matters, since an agent on a wall, e.g., behind a door that closed on
+     * it, can still leave
+     */
+    private int cost (int from, int to) {
+        return grid.isWall(to) ? INFINITE : grid.getCost(to);
+    }
+
+    private static int add (int a, int b) {
+        return (a == INFINITE || b == INFINITE) ? INFINITE : a + b;
+    }
+
+    private int blockDistance (int from, int to) {
+        return Math.abs(grid.col(from) - grid.col(to)) + Math.abs(grid.row(from) - grid.row(to));
+    }
+
+    /**
+     * One leg's D* Lite search, run backward from its targets: g is the cost to
+     * the nearest target as of the last expansion, rhs its one-step lookahead,
+     * and the queue holds the cells where the two disagree.
+     */
+    private class Leg {
+
+        private final boolean foundKey;
+        private final int[] g, rhs;
+        private final KeyHeap queue;
+        int start;
+        private int lastStart;
+        private long keyModifier;
+
+        Leg (boolean foundKey, int[] targets, int start) {
+            this.foundKey = foundKey;
+            this.start = start;
+            this.lastStart = start;
+            this.g = new int[grid.size()];
+            this.rhs = new int[grid.size()];
+            this.queue = new KeyHeap(grid.size());
+            Arrays.fill(g, INFINITE);
+            Arrays.fill(rhs, INFINITE);
+            for (int target : targets) {
+                rhs[target] = 0;
+                queue.push(target, key(target));
+            }
+        }
+
+        private boolean isTarget (int cell) {
+            return problem.isObjective(cell, foundKey);
+        }
+
+        /**
+         * [Mutator] Accounts for the start having moved since the queue's keys were
+         * computed, by raising all future keys by the most their heuristic can
+         * have dropped, rather than re-keying the whole queue.
+         */
+        private void syncStart () {
+            keyModifier += blockDistance(lastStart, start);
+            lastStart = start;
+        }
+
+        /**
+         * @return The priority of a cell: (min(g, rhs) + h + keyModifier, min(g, rhs))
+         * packed into one long so that longs order as the pairs do
+         */
+        private long key (int cell) {
+            int best = Math.min(g[cell], rhs[cell]);
+            if (best == INFINITE) {
+                return Long.MAX_VALUE;
+            }
+            return ((best + blockDistance(start, cell) + keyModifier) << 32) | best;
+        }
+
+        /**
+         * @return The cheapest one-step lookahead from cell to a target
+         */
+        private int lookahead (int cell) {
+            int best = INFINITE;
+            for (int move = MazeGrid.UP; move <= MazeGrid.RIGHT; move++) {
+                int next = grid.step(cell, move);
+                if (next >= 0) {
+                    best = Math.min(best, add(cost(cell, next), g[next]));
+                }
+            }
+            return best;
+        }
+
+        private void updateVertex (int cell) {
+            boolean inconsistent = g[cell] != rhs[cell];
+            if (inconsistent && queue.contains(cell)) {
+                queue.update(cell, key(cell));
+            } else if (inconsistent) {
+                queue.push(cell, key(cell));
+            } else if (queue.contains(cell)) {
+                queue.remove(cell);
+            }
+        }
+
+        /**
+         * [Mutator] Expands inconsistent cells until the start's cost is settled.
+         */
+        private void computeShortestPath () {
+            syncStart();
+            while (!queue.isEmpty() && (queue.peekKey() < key(start) || rhs[start] > g[start])) {
+                int cell = queue.peek();
+                long oldKey = queue.peekKey(), newKey = key(cell);
+                if (oldKey < newKey) {
+                    queue.update(cell, newKey);
+                } else if (g[cell] > rhs[cell]) {
+                    // Overconsistent: settle it and lower its neighbors' lookaheads
+                    g[cell] = rhs[cell];
+                    queue.remove(cell);
+                    for (int move = MazeGrid.UP; move <= MazeGrid.RIGHT; move++) {
+                        int previous = neighbor(cell, move); // A wall can be left, so it may precede cell
+                        if (previous >= 0 && !isTarget(previous)) {
+                            rhs[previous] = Math.min(rhs[previous], add(cost(previous, cell), g[cell]));
+                            updateVertex(previous);
+                        }
+                    }
+                } else {
+                    // Underconsistent: raise it, and recompute every lookahead that
+                    // went through it
+                    int oldG = g[cell];
+                    g[cell] = INFINITE;
+                    for (int move = MazeGrid.UP; move <= MazeGrid.RIGHT + 1; move++) {
+                        int previous = (move > MazeGrid.RIGHT) ? cell : neighbor(cell, move);
+                        if (previous < 0) {
+                            continue;
+                        }
+                        int through = (previous == cell) ? INFINITE : add(cost(previous, cell), oldG);
+                        if ((previous == cell || rhs[previous] == through) && !isTarget(previous)) {
+                            rhs[previous] = lookahead(previous);
+                        }
+                        updateVertex(previous);
+                    }
+                }
+            }
+        }
+
+        /**
+         * [Mutator] Repairs the lookaheads of the cells whose outgoing edge costs
+         * changed when the given cell's terrain did.
+         *
+         * @param cell The changed cell
+         * @param before Edge costs around cell before the change, as from edgeCosts
+         * @param after Edge costs around cell after the change
+         */
+        void updateEdges (int cell, int[] before, int[] after) {
+            syncStart();
+            for (int i = 0; i < 8; i++) {
+                if (before[i] == after[i]) {
+                    continue;
+                }
+                int neighbor = neighbor(cell, i & 3);
+                // Edges 0-3 lead from the neighbor into cell; 4-7 the other way
+                int from = (i < 4) ? neighbor : cell, to = (i < 4) ? cell : neighbor;
+                if (isTarget(from)) {
+                    continue;
+                }
+                if (before[i] > after[i]) {
+                    rhs[from] = Math.min(rhs[from], add(after[i], g[to]));
+                } else if (rhs[from] == add(before[i], g[to])) {
+                    rhs[from] = lookahead(from);
+                }
+                updateVertex(from);
+            }
+        }
+
+        /**
+         * Settles the leg and appends its path, following the cheapest lookahead
+         * from the start to a target.
+         *
+         * @return Whether a target can be reached
+         */
+        boolean appendPath (ArrayList<String> path) {
+            computeShortestPath();
+            if (rhs[start] == INFINITE) {
+                return false;
+            }
+            for (int cell = start, steps = 0; !isTarget(cell); steps++) {
+                int bestMove = -1, best = INFINITE;
+                for (int move = MazeGrid.UP; move <= MazeGrid.RIGHT; move++) {
+                    int next = grid.step(cell, move);
+                    if (next >= 0 && add(cost(cell, next), g[next]) < best) {
+                        best = add(cost(cell, next), g[next]);
+                        bestMove = move;
+                    }
+                }
+                if (bestMove < 0 || steps > grid.size()) {
+                    return false;
+                }
+                path.add(MazeGrid.action(bestMove));
+                cell = grid.step(cell, bestMove);
+            }
+            return true;
+        }
+
+    }
+
+    /**
+     * Indexed binary min-heap of cells with long keys, supporting the arbitrary
+     * key updates and removals that D* Lite needs.
+     */
+    private static class KeyHeap {
+
+        private final int[] heap, positions;
+        private final long[] keys;
+        private int size;
+
+        KeyHeap (int capacity) {
+            heap = new int[capacity];
+            positions = new int[capacity];
+            keys = new long[capacity];
+            Arrays.fill(positions, -1);
+        }
+
+        boolean isEmpty () {
+            return size == 0;
+        }
+
+        boolean contains (int cell) {
+            return positions[cell] >= 0;
+        }
+
+        int peek () {
+            return heap[0];
+        }
+
+        long peekKey () {
+            return keys[heap[0]];
+        }
+
+        void push (int cell, long key) {
+            keys[cell] = key;
+            heap[size] = cell;
+            positions[cell] = size;
+            siftUp(size++);
+        }
+
+        void update (int cell, long key) {
+            long old = keys[cell];
+            keys[cell] = key;
+            if (key < old) {
+                siftUp(positions[cell]);
+            } else {
+                siftDown(positions[cell]);
+            }
+        }
+
+        void remove (int cell) {
+            int i = positions[cell], last = heap[--size];
+            positions[cell] = -1;
+            if (i < size) {
+                heap[i] = last;
+                positions[last] = i;
+                siftUp(i);
+                siftDown(positions[last]);
+            }
+        }
+
+        private void siftUp (int i) {
+            int cell = heap[i];
+            while (i > 0 && keys[heap[(i - 1) >>> 1]] > keys[cell]) {
+                heap[i] = heap[(i - 1) >>> 1];
+                positions[heap[i]] = i;
+                i = (i - 1) >>> 1;
+            }
+            heap[i] = cell;
+            positions[cell] = i;
+        }
+
+        private void siftDown (int i) {
+            int cell = heap[i];
+            while (2 * i + 1 < size) {
+                int child = 2 * i + 1;
+                if (child + 1 < size && keys[heap[child + 1]] < keys[heap[child]]) {
+                    child++;
+                }
+                if (keys[heap[child]] >= keys[cell]) {
+                    break;
+                }
+                heap[i] = heap[child];
+                positions[heap[i]] = i;
+                i = child;
+            }
+            heap[i] = cell;
+            positions[cell] = i;
+        }
+
+    }
+
+}
@@ -0,0 +1,117 @@
+package pathfinder.informed;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Exact cost-to-go from every cell of a maze to the nearest of a set of source
+ * cells (e.g., the goals), computed once by a multi-source Dijkstra run backward
+ * from the sources. Since the costs are exact, the field is both a perfect (and
+ * consistent) A* heuristic and, by always stepping to the neighbor that accounts
+ * for the whole remaining cost, a direct answer to "how do I get to a source".
+ */
+public class DistanceField {
+
+    // Fields
+    // -----------------------------------------------------------------------------
+    public static final int UNREACHABLE = Integer.MAX_VALUE;
+    private final MazeGrid grid;
+    private final int[] distances;
+    private final long gridVersion;
+
+
+    // Constructor
+    // -----------------------------------------------------------------------------
+
+    /**
+     * Constructs a new DistanceField over the given grid, measuring for each cell
+     * the cost of the cheapest sequence of moves that ends at any of sources.
+     *
+     * @param grid The MazeGrid to measure distances in
+     * @param sources Flat cell indices that have distance 0; walls among them,
+     * which no move can enter, are skipped
+     */
+    DistanceField (MazeGrid grid, int[] sources) {
+        this.grid = grid;
+        this.gridVersion = grid.getVersion();
+        this.distances = new int[grid.size()];
+        Arrays.fill(distances, UNREACHABLE);
+
+        // Step costs are small integers, so a BucketQueue gives a linear-time
+        // Dijkstra; costs are those of entering the cell being expanded, since
+        // the field is grown backward from the sources
+        BucketQueue frontier = new BucketQueue(grid.size());
+        int[] neighbors = new int[4];
+        for (int source : sources) {
+            if (!grid.isWall(source) && distances[source] != 0) {
+                distances[source] = 0;
+                frontier.push(source, 0);
+            }
+        }
+        while (!frontier.isEmpty()) {
+            int cell = frontier.pop();
+            int distance = distances[cell] + grid.getCost(cell);
+            grid.getNeighbors(cell, neighbors);
+            for (int move = MazeGrid.UP; move <= MazeGrid.RIGHT; move++) {
+                int previous = neighbors[move];
+                if (previous < 0 || distance >= distances[previous]) {
+                    continue;
+                }
+                if (distances[previous] == UNREACHABLE) {
+                    frontier.push(previous, distance);
+                } else {
+                    frontier.decreaseKey(previous, distance);
+                }
+                distances[previous] = distance;
+            }
+        }
+    }
+
+
+    // Methods
+    // -----------------------------------------------------------------------------
+
+    /**
+     * @return Whether the grid's terrain is unchanged since this field was computed
+     */
+    public boolean isCurrent () {
+        return grid.getVersion() == gridVersion;
+    }
+
+    /**
+     * @param cell Flat cell index
+     * @return The exact cost from cell to its nearest source, or UNREACHABLE
+     */
+    public int getDistance (int cell) {
+        return distances[cell];
+    }
+
+    /**
+     * Returns a cheapest path from the given cell to its nearest source, found by
+     * repeatedly stepping to a neighbor whose distance plus entry cost accounts
+     * for all of the current cell's distance.
+     *
+     * @param cell Flat cell index to start from
+     * @return ArrayList sequence of actions of format ["U", "R", "U", ...], or
+     * null if no source can be reached from cell
+     */
+    public ArrayList<String> getPath (int cell) {
+        if (distances[cell] == UNREACHABLE) {
+            return null;
+        }
+        ArrayList<String> result = new ArrayList<>();
+        while (distances[cell] > 0) {
+            for (int move = MazeGrid.UP; move <= MazeGrid.RIGHT; move++) {
+                int next = grid.step(cell, move);
+                if (next >= 0 && distances[next] != UNREACHABLE
+                        && distances[next] + grid.getCost(next) == distances[cell]) {
+                    result.add(MazeGrid.action(move));
+                    cell = next;
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,52 @@
+package pathfinder.informed;
+
+/**
+ * Priority queue of cell indices used as the frontier of a Search; every cell
+ * appears at most once, and its priority may only be lowered while queued.
+ */
+public interface Frontier {
+
+    /**
+     * Frontier implementations that Pathfinder can be asked to search with.
+     */
+    enum Kind {
+        /** IndexedHeap: O(log n) push / pop, for arbitrary priorities */
+        BINARY_HEAP,
+        /** BucketQueue: O(1) push / pop, for small integer priorities */
+        BUCKET_QUEUE;
+
+        /**
+         * @param capacity Number of distinct cells, i.e., MazeGrid.size()
+         * @return A new, empty Frontier of this Kind
+         */
+        Frontier create (int capacity) {
+            return this == BUCKET_QUEUE ? new BucketQueue(capacity) : new IndexedHeap(capacity);
+        }
+    }
+
+    boolean isEmpty ();
+
+    int size ();
+
+    boolean contains (int cell);
+
+    /**
+     * @param cell Flat cell index currently in the Frontier
+     * @return The priority the cell is stored with
+     */
+    int getKey (int cell);
+
+    void push (int cell, int key);
+
+    void decreaseKey (int cell, int key);
+
+    int pop ();
+
+    /**
+     * @return The smallest key of any cell in this non-empty Frontier
+     */
+    int peekKey ();
+
+    void clear ();
+
+}
@@ -0,0 +1,109 @@
+package pathfinder.informed;
+
+/**
+ * Spatial index over a maze's goal cells that answers "block distance to the
+ * nearest goal" without scanning every goal. The maze is divided into square
+ * buckets sized so that each holds a couple of goals on average; goals are
+ * stored bucket-by-bucket in flat arrays, and a query scans rings of buckets
+ * outward from its own until no farther ring could hold a closer goal.
+ */
+public class GoalIndex {
+
+    // Fields
+    // -----------------------------------------------------------------------------
+    private final int bucketSize, bucketRows, bucketCols;
+    private final int[] bucketStarts, goalCols, goalRows;
+
+
+    // Constructor
+    // -----------------------------------------------------------------------------
+
+    /**
+     * Constructs a new GoalIndex over the given goals.
+     *
+     * @param grid The MazeGrid that the goals lie in
+     * @param goalCells Flat cell indices of every goal
+     */
+    GoalIndex (MazeGrid grid, int[] goalCells) {
+        int goals = goalCells.length;
+        bucketSize = Math.max(1, (int) Math.sqrt(2.0 * grid.rows * grid.cols / Math.max(1, goals)));
+        bucketRows = (grid.rows + bucketSize - 1) / bucketSize;
+        bucketCols = (grid.cols + bucketSize - 1) / bucketSize;
+        bucketStarts = new int[bucketRows * bucketCols + 1];
+        goalCols = new int[goals];
+        goalRows = new int[goals];
+
+        // Counting sort of the goals by bucket: count, prefix sum, then place
+        for (int goal : goalCells) {
+            bucketStarts[bucketOf(grid.col(goal), grid.row(goal)) + 1]++;
+        }
+        for (int b = 0; b < bucketRows * bucketCols; b++) {
+            bucketStarts[b + 1] += bucketStarts[b];
+        }
+        int[] fill = bucketStarts.clone();
+        for (int goal : goalCells) {
+            int slot = fill[bucketOf(grid.col(goal), grid.row(goal))]++;
+            goalCols[slot] = grid.col(goal);
+            goalRows[slot] = grid.row(goal);
+        }
+    }
+
+
+    // Methods
+    // -----------------------------------------------------------------------------
+
+    /**
+     * Returns the block distance from (col, row) to the nearest goal.
+     *
+     * @param col Column of the query position
+     * @param row Row of the query position
+     * @return Integer block distance to the nearest goal, or
+     * DistanceField.UNREACHABLE if there are no goals
+     */
+    public int getNearestDistance (int col, int row) {
+        int best = DistanceField.UNREACHABLE;
+        if (goalCols.length == 0) {
+            return best;
+        }
+        int centerRow = Math.min(row / bucketSize, bucketRows - 1),
+            centerCol = Math.min(col / bucketSize, bucketCols - 1),
+            maxRing = Math.max(bucketRows, bucketCols);
+
+        for (int ring = 0; ring <= maxRing; ring++) {
+            // Every cell in a bucket of this ring is at least (ring - 1) buckets
+            // plus one cell away along some axis
+            if (ring > 0 && best <= (ring - 1) * bucketSize) {
+                break;
+            }
+            for (int br = centerRow - ring; br <= centerRow + ring; br++) {
+                if (br < 0 || br >= bucketRows) {
+                    continue;
+                }
+                boolean edgeRow = br == centerRow - ring || br == centerRow + ring;
+                int step = edgeRow ? 1 : 2 * ring;
+                for (int bc = centerCol - ring; bc <= centerCol + ring; bc += Math.max(1, step)) {
+                    if (bc >= 0 && bc < bucketCols) {
+                        best = Math.min(best, scanBucket(br * bucketCols + bc, col, row));
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return The smallest block distance from (col, row) to a goal in the bucket
+     */
+    private int scanBucket (int bucket, int col, int row) {
+        int best = DistanceField.UNREACHABLE;
+        for (int i = bucketStarts[bucket]; i < bucketStarts[bucket + 1]; i++) {
+            best = Math.min(best, Math.abs(col - goalCols[i]) + Math.abs(row - goalRows[i]));
+        }
+        return best;
+    }
+
+    private int bucketOf (int col, int row) {
+        return (row / bucketSize) * bucketCols + col / bucketSize;
+    }
+
+}
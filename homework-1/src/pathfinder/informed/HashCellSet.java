@@ -0,0 +1,116 @@
+package pathfinder.informed;
+
+import java.util.Arrays;
+
+/**
+ * CellSet backed by an open-addressing table of cell indices with linear probing,
+ * whose memory grows with the number of cells added rather than the size of the
+ * grid. Removal shifts later entries of a probe run back, so no tombstones build up.
+ */
+public class HashCellSet implements CellSet {
+
+    // Fields
+    // -----------------------------------------------------------------------------
+    private static final int EMPTY = -1, INITIAL_CAPACITY = 64;
+    private int[] table;
+    private int size, shift;
+
+
+    // Constructor
+    // -----------------------------------------------------------------------------
+
+    /**
+     * Constructs a new, empty HashCellSet.
+     */
+    HashCellSet () {
+        allocate(INITIAL_CAPACITY);
+    }
+
+
+    // Methods
+    // -----------------------------------------------------------------------------
+
+    @Override
+    public boolean contains (int cell) {
+        return table[find(cell)] == cell;
+    }
+
+    @Override
+    public boolean add (int cell) {
+        int i = find(cell);
+        if (table[i] == cell) {
+            return false;
+        }
+        table[i] = cell;
+        if (2 * ++size > table.length) {
+            rehash(2 * table.length);
+        }
+        return true;
+    }
+
+    @Override
+    public void remove (int cell) {
+        int mask = table.length - 1, hole = find(cell);
+        if (table[hole] != cell) {
+            return;
+        }
+        size--;
+        // Move back any later entry of the run whose probe passes over the hole
+        for (int i = (hole + 1) & mask; table[i] != EMPTY; i = (i + 1) & mask) {
+            int home = hash(table[i]);
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                table[hole] = table[i];
+                hole = i;
+            }
+        }
+        table[hole] = EMPTY;
+    }
+
+    @Override
+    public int size () {
+        return size;
+    }
+
+    @Override
+    public void clear () {
+        if (size > 0) {
+            Arrays.fill(table, EMPTY);
+            size = 0;
+        }
+    }
+
+    /**
+     * @return The slot holding the given cell, or the empty slot that ends its probe run
+     */
+    private int find (int cell) {
+        int mask = table.length - 1, i = hash(cell);
+        while (table[i] != EMPTY && table[i] != cell) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    /**
+     * @return The home slot of the given cell, from the top bits of a Fibonacci hash
+     */
+    private int hash (int cell) {
+        return (cell * 0x9E3779B9) >>> shift;
+    }
+
+    private void allocate (int capacity) {
+        table = new int[capacity];
+        Arrays.fill(table, EMPTY);
+        shift = Integer.numberOfLeadingZeros(capacity) + 1;
+    }
+
+    private void rehash (int capacity) {
+        int[] old = table;
+        allocate(capacity);
+        for (int cell : old) {
+            if (cell != EMPTY) {
+                table[find(cell)] = cell;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,286 @@
+package pathfinder.informed;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Hierarchical pathfinding (HPA*) over a precomputed ClusterGraph. Each leg of a
+ * query inserts its start into the abstract graph with a search of the start's
+ * cluster, treats every node of a cluster holding an objective as one edge away
+ * from a virtual target (weighing its cheapest path to an objective inside the
+ * cluster), and runs A* over the abstract graph; only the segments of the
+ * abstract path that is found are then refined into moves, cluster by cluster.
+ * <p>
+ * As in HPA*, paths are complete but only near-optimal, since paths between
+ * clusters are forced through the transition cells.
+ */
+public class HierarchicalPathfinder {
+
+    // Fields
+    // -----------------------------------------------------------------------------
+    private static final int NONE = -1;
+    private final MazeProblem problem;
+    private final MazeGrid grid;
+    private final ClusterGraph graph;
+    private final ClusterGraph.LocalSearch local;
+    private final int start, target;
+    private final int[] pastCosts, parents, exitCosts;
+    private final boolean[] closed;
+    private final IndexedHeap frontier;
+
+
+    // Constructor
+    // -----------------------------------------------------------------------------
+
+    /**
+     * Constructs a new HierarchicalPathfinder for queries on the given problem.
+     *
+     * @param problem A MazeProblem that specifies the maze, actions, transitions.
+     * @param graph A ClusterGraph built for the problem's grid
+     */
+    private HierarchicalPathfinder (MazeProblem problem, ClusterGraph graph) {
+        this.problem = problem;
+        this.grid = problem.getGrid();
+        this.graph = graph;
+        this.local = new ClusterGraph.LocalSearch(grid, graph);
+        int nodes = graph.getNodeCount();
+        this.start = nodes;
+        this.target = nodes + 1;
+        this.pastCosts = new int[nodes + 2];
+        this.parents = new int[nodes + 2];
+        this.exitCosts = new int[nodes];
+        this.closed = new boolean[nodes + 2];
+        this.frontier = new IndexedHeap(nodes + 2);
+    }
+
+
+    // Methods
+    // -----------------------------------------------------------------------------
+
+    /**
+     * Given a MazeProblem and a ClusterGraph of its maze, returns a solution found
+     * by hierarchical search.
+     *
+     * @param problem A MazeProblem that specifies the maze, actions, transitions.
+     * @param graph A ClusterGraph built for the problem's grid
+     * @return An ArrayList of Strings representing actions that lead from the initial to
+     * the goal state, of the format: ["R", "R", "L", ...], or null if there is none
+     * @throws IllegalArgumentException If graph was built for another grid, or the
+     * terrain has changed since it was built
+     */
+    public static ArrayList<String> solve (MazeProblem problem, ClusterGraph graph) {
+        if (!graph.isCurrent(problem.getGrid())) {
+            throw new IllegalArgumentException("ClusterGraph not built for this maze and terrain");
+        }
+        if (problem.KEY_STATE == null) {
+            return null;
+        }
+        HierarchicalPathfinder search = new HierarchicalPathfinder(problem, graph);
+        ArrayList<String> pathSoln = search.searchLeg(problem.INITIAL_CELL, new int[] {problem.KEY_CELL}, false);
+        if (pathSoln == null) {
+            return null;
+        }
+        ArrayList<String> keyToGoal = search.searchLeg(problem.KEY_CELL, problem.getGoalCells(), true);
+        if (keyToGoal == null) {
+            return null;
+        }
+        pathSoln.addAll(keyToGoal);
+        return pathSoln;
+    }
+
+    /**
+     * Finds a path from the given cell to the nearest of the given objectives.
+     */
+    private ArrayList<String> searchLeg (int startCell, int[] objectives, boolean foundKey) {
+        // A walled objective cannot be entered, so it is never an entrance
+        objectives = withoutWalls(objectives);
+        if (objectives.length == 0) {
+            return null;
+        }
+        if (grid.isWall(startCell)) {
+            return searchLegFromWall(startCell, objectives, foundKey);
+        }
+        Map<Integer, int[]> objectiveClusters = groupByCluster(objectives);
+        Arrays.fill(pastCosts, DistanceField.UNREACHABLE);
+        Arrays.fill(parents, NONE);
+        Arrays.fill(exitCosts, NONE);
+        Arrays.fill(closed, false);
+        frontier.clear();
+
+        // Insert the start, connected to the nodes of its own cluster, and to the
+        // target directly if that cluster holds an objective
+        int startCluster = graph.clusterOf(startCell);
+        local.run(startCluster, new int[] {startCell}, false);
+        for (int node = graph.clusterStarts[startCluster]; node < graph.clusterStarts[startCluster + 1]; node++) {
+            relax(start, node, local.getDistance(graph.nodeCells[node]), foundKey);
+        }
+        int[] startObjectives = objectiveClusters.get(startCluster);
+        if (startObjectives != null) {
+            for (int objective : startObjectives) {
+                relax(start, target, local.getDistance(objective), foundKey);
+            }
+        }
+
+        while (!frontier.isEmpty()) {
+            int node = frontier.pop();
+            if (node == target) {
+                return refine(startCell, objectiveClusters);
+            }
+            closed[node] = true;
+            int cluster = graph.clusterOf(graph.nodeCells[node]);
+            int[] clusterObjectives = objectiveClusters.get(cluster);
+            if (clusterObjectives != null) {
+                if (exitCosts[node] == NONE) {
+                    computeExitCosts(cluster, clusterObjectives);
+                }
+                relax(node, target, exitCosts[node], foundKey);
+            }
+            for (int edge = graph.edgeStarts[node]; edge < graph.edgeStarts[node + 1]; edge++) {
+                relax(node, graph.edgeTargets[edge], graph.edgeCosts[edge], foundKey);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds a path from a start on a wall, which no entrance leads out of, by
+     * searching from each of its open neighbors and keeping the cheapest.
+     */
+    private ArrayList<String> searchLegFromWall (int startCell, int[] objectives, boolean foundKey) {
+        ArrayList<String> best = null;
+        int bestCost = DistanceField.UNREACHABLE;
+        for (int move = MazeGrid.UP; move <= MazeGrid.RIGHT; move++) {
+            int next = grid.step(startCell, move);
+            if (next < 0) {
+                continue;
+            }
+            ArrayList<String> path = searchLeg(next, objectives, foundKey);
+            if (path != null && grid.getCost(next) + pastCosts[target] < bestCost) {
+                bestCost = grid.getCost(next) + pastCosts[target];
+                path.add(0, MazeGrid.action(move));
+                best = path;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Offers the abstract node next a path through node whose last edge has the
+     * given cost.
+     */
+    private void relax (int node, int next, int edgeCost, boolean foundKey) {
+        if (edgeCost == DistanceField.UNREACHABLE || closed[next]) {
+            return;
+        }
+        int pastCost = ((node == start) ? 0 : pastCosts[node]) + edgeCost;
+        if (pastCost >= pastCosts[next]) {
+            return;
+        }
+        int futureCost = (next == target) ? 0 : problem.getDistance(graph.nodeCells[next], foundKey);
+        if (futureCost == DistanceField.UNREACHABLE) {
+            return;
+        }
+        boolean queued = pastCosts[next] != DistanceField.UNREACHABLE;
+        pastCosts[next] = pastCost;
+        parents[next] = node;
+        if (queued) {
+            frontier.decreaseKey(next, pastCost + futureCost);
+        } else {
+            frontier.push(next, pastCost + futureCost);
+        }
+    }
+
+    /**
+     * [Mutator] Records, for every node of the cluster, its cheapest path inside the
+     * cluster to one of the cluster's objectives.
+     */
+    private void computeExitCosts (int cluster, int[] objectives) {
+        local.run(cluster, objectives, true);
+        for (int node = graph.clusterStarts[cluster]; node < graph.clusterStarts[cluster + 1]; node++) {
+            exitCosts[node] = local.getDistance(graph.nodeCells[node]);
+        }
+    }
+
+    /**
+     * Turns the abstract path to the target into moves, searching only the cluster
+     * of each segment.
+     */
+    private ArrayList<String> refine (int startCell, Map<Integer, int[]> objectiveClusters) {
+        ArrayList<Integer> nodes = new ArrayList<>();
+        for (int node = parents[target]; node != start; node = parents[node]) {
+            nodes.add(node);
+        }
+        ArrayList<String> path = new ArrayList<>();
+        int startCluster = graph.clusterOf(startCell);
+        if (nodes.isEmpty()) {
+            // Straight from the start to an objective in its own cluster
+            int[] objectives = objectiveClusters.get(startCluster);
+            local.run(startCluster, objectives, true);
+            local.appendPath(startCell, path);
+            return path;
+        }
+
+        int cell = startCell, cluster = startCluster;
+        for (int i = nodes.size() - 1; i >= 0; i--) {
+            int next = graph.nodeCells[nodes.get(i)], nextCluster = graph.clusterOf(next);
+            if (nextCluster == cluster) {
+                local.run(cluster, new int[] {cell}, false);
+                local.appendPath(next, path);
+            } else {
+                // Adjacent cells on either side of a transition
+                for (int move = MazeGrid.UP; move <= MazeGrid.RIGHT; move++) {
+                    if (grid.step(cell, move) == next) {
+                        path.add(MazeGrid.action(move));
+                    }
+                }
+            }
+            cell = next;
+            cluster = nextCluster;
+        }
+        local.run(cluster, objectiveClusters.get(cluster), true);
+        local.appendPath(cell, path);
+        return path;
+    }
+
+    /**
+     * @return The given cells that are not walls, in the same order
+     */
+    private int[] withoutWalls (int[] cells) {
+        int[] open = new int[cells.length];
+        int count = 0;
+        for (int cell : cells) {
+            if (!grid.isWall(cell)) {
+                open[count++] = cell;
+            }
+        }
+        return Arrays.copyOf(open, count);
+    }
+
+    /**
+     * @return The given cells, grouped by the index of the cluster holding them
+     */
+    private Map<Integer, int[]> groupByCluster (int[] cells) {
+        long[] keys = new long[cells.length];
+        for (int i = 0; i < cells.length; i++) {
+            keys[i] = ((long) graph.clusterOf(cells[i]) << 32) | cells[i];
+        }
+        Arrays.sort(keys);
+        HashMap<Integer, int[]> clusters = new HashMap<>();
+        for (int from = 0, to; from < keys.length; from = to) {
+            int cluster = (int) (keys[from] >>> 32);
+            to = from + 1;
+            while (to < keys.length && (int) (keys[to] >>> 32) == cluster) {
+                to++;
+            }
+            int[] members = new int[to - from];
+            for (int i = from; i < to; i++) {
+                members[i - from] = (int) keys[i];
+            }
+            clusters.put(cluster, members);
+        }
+        return clusters;
+    }
+
+}
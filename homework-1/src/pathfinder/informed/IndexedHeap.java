@@ -0,0 +1,164 @@
+package pathfinder.informed;
+
+import java.util.Arrays;
+
+/**
+ * Binary min-heap of cell indices keyed by integer priority, which additionally
+ * tracks the heap position of every cell so that a cell appears at most once
+ * and its priority can be lowered in place (decrease-key) rather than by
+ * pushing a duplicate entry.
+ */
+public class IndexedHeap implements Frontier {
+
+    // Fields
+    // -----------------------------------------------------------------------------
+    private final int[] heap, keys, positions;
+    private int size;
+
+
+    // Constructor
+    // -----------------------------------------------------------------------------
+
+    /**
+     * Constructs a new, empty IndexedHeap able to hold the cells [0, capacity).
+     *
+     * @param capacity Number of distinct cells, i.e., MazeGrid.size()
+     */
+    IndexedHeap (int capacity) {
+        heap = new int[capacity];
+        keys = new int[capacity];
+        positions = new int[capacity];
+        Arrays.fill(positions, -1);
+    }
+
+
+    // Methods
+    // -----------------------------------------------------------------------------
+
+    @Override
+    public boolean isEmpty () {
+        return size == 0;
+    }
+
+    @Override
+    public int size () {
+        return size;
+    }
+
+    /**
+     * @param cell Flat cell index
+     * @return Whether or not the given cell is currently in the heap
+     */
+    @Override
+    public boolean contains (int cell) {
+        return positions[cell] >= 0;
+    }
+
+    /**
+     * @param cell Flat cell index currently in the heap
+     * @return The priority the cell is stored with
+     */
+    @Override
+    public int getKey (int cell) {
+        return keys[cell];
+    }
+
+    /**
+     * Adds a cell that is not already in the heap.
+     *
+     * @param cell Flat cell index
+     * @param key Priority of the cell; smaller keys are popped first
+     */
+    @Override
+    public void push (int cell, int key) {
+        keys[cell] = key;
+        positions[cell] = size;
+        heap[size] = cell;
+        siftUp(size++);
+    }
+
+    /**
+     * Lowers the priority of a cell already in the heap; keys that are not
+     * smaller than the current one are ignored.
+     *
+     * @param cell Flat cell index currently in the heap
+     * @param key New, smaller priority of the cell
+     */
+    @Override
+    public void decreaseKey (int cell, int key) {
+        if (key < keys[cell]) {
+            keys[cell] = key;
+            siftUp(positions[cell]);
+        }
+    }
+
+    /**
+     * Removes and returns the cell with the smallest key.
+     *
+     * @return Flat cell index of the minimum
+     */
+    @Override
+    public int pop () {
+        int top = heap[0];
+        positions[top] = -1;
+        if (--size > 0) {
+            heap[0] = heap[size];
+            positions[heap[0]] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    @Override
+    public int peekKey () {
+        return keys[heap[0]];
+    }
+
+    /**
+     * [Mutator] Empties the heap in time proportional to its current size.
+     */
+    @Override
+    public void clear () {
+        for (int i = 0; i < size; i++) {
+            positions[heap[i]] = -1;
+        }
+        size = 0;
+    }
+
+    private void siftUp (int i) {
+        int cell = heap[i], key = keys[cell];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (keys[heap[parent]] <= key) {
+                break;
+            }
+            heap[i] = heap[parent];
+            positions[heap[i]] = i;
+            i = parent;
+        }
+        heap[i] = cell;
+        positions[cell] = i;
+    }
+
+    private void siftDown (int i) {
+        int cell = heap[i], key = keys[cell];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && keys[heap[child + 1]] < keys[heap[child]]) {
+                child++;
+            }
+            if (keys[heap[child]] >= key) {
+                break;
+            }
+            heap[i] = heap[child];
+            positions[heap[i]] = i;
+            i = child;
+        }
+        heap[i] = cell;
+        positions[cell] = i;
+    }
+
+}
@@ -0,0 +1,288 @@
+package pathfinder.informed;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * Jump Point Search for the 4-connected Maze Grid. Within uniform-cost floor,
+ * paths are kept in a canonical "vertical, then horizontal" form: a horizontal
+ * jump runs straight until it meets an objective or a forced neighbor (a cell
+ * above / below that is open while the one behind it was a wall), and a vertical
+ * jump runs straight until a horizontal jump from one of its cells would find a
+ * jump point. Only the jump points are placed on the frontier, so the symmetric
+ * paths across open floor are never expanded cell-by-cell.
+ * <p>
+ * Mud breaks the uniform-cost assumption, so jumps never cross it: mud cells,
+ * and any floor cell next to mud, are jump points that receive a normal, unpruned
+ * expansion in all four directions.
+ */
+public class JumpPointSearch {
+
+    // Fields
+    // -----------------------------------------------------------------------------
+    private static final int FULL = 1 << 4;
+    private final MazeProblem problem;
+    private final MazeGrid grid;
+    private final int[] pastCosts, parents;
+    private final byte[] arrivals;
+    private final CellSet closedCells;
+    private final IndexedHeap frontier;
+    private boolean foundKey;
+
+
+    // Constructor
+    // -----------------------------------------------------------------------------
+
+    /**
+     * Constructs a new JumpPointSearch over the given problem, allocating the
+     * per-cell arrays that both legs (initial to key, key to goal) share.
+     *
+     * @param problem A MazeProblem that specifies the maze, actions, transitions.
+     */
+    private JumpPointSearch (MazeProblem problem) {
+        this.problem = problem;
+        this.grid = problem.getGrid();
+        int size = grid.size();
+        pastCosts = new int[size];
+        parents = new int[size];
+        arrivals = new byte[size];
+        closedCells = new BitCellSet(size);
+        frontier = new IndexedHeap(size);
+    }
+
+
+    // Methods
+    // -----------------------------------------------------------------------------
+
+    /**
+     * Given a MazeProblem, returns a solution as a sequence of actions that leads
+     * from the initial state through the key to a goal state, with the same cost
+     * as Pathfinder.solve, but found by expanding only jump points.
+     *
+     * @param problem A MazeProblem that specifies the maze, actions, transitions.
+     * @return An ArrayList of Strings representing actions that lead from the initial to
+     * the goal state, of the format: ["R", "R", "L", ...], or null if there is none
+     */
+    public static ArrayList<String> solve (MazeProblem problem) {
+        if (problem.KEY_STATE == null) {
+            return null;
+        }
+        JumpPointSearch search = new JumpPointSearch(problem);
+        ArrayList<String> pathSoln = search.searchLeg(problem.INITIAL_CELL, false);
+        if (pathSoln == null) {
+            return null;
+        }
+        ArrayList<String> keyToGoal = search.searchLeg(problem.KEY_CELL, true);
+        if (keyToGoal == null) {
+            return null;
+        }
+        pathSoln.addAll(keyToGoal);
+        return pathSoln;
+    }
+
+    /**
+     * Runs one A* over jump points from the given cell to the nearest objective.
+     *
+     * @param start Flat cell index to search from
+     * @param foundKey Whether the objective is a goal (true) or the key (false)
+     * @return The actions of the leg, or null if the objective is unreachable
+     */
+    private ArrayList<String> searchLeg (int start, boolean foundKey) {
+        this.foundKey = foundKey;
+        frontier.clear();
+        closedCells.clear();
+        Arrays.fill(parents, -1);
+
+        if (problem.getDistance(start, foundKey) == DistanceField.UNREACHABLE) {
+            return null;
+        }
+        pastCosts[start] = 0;
+        arrivals[start] = FULL;
+        frontier.push(start, problem.getDistance(start, foundKey));
+
+        while (!frontier.isEmpty()) {
+            int cell = frontier.pop();
+            closedCells.add(cell);
+            if (problem.isObjective(cell, foundKey)) {
+                return getPath(start, cell);
+            }
+            int moves = successorMoves(cell);
+            for (int move = MazeGrid.UP; move <= MazeGrid.RIGHT; move++) {
+                if ((moves & (1 << move)) == 0) {
+                    continue;
+                }
+                int jumpPoint = (move <= MazeGrid.DOWN) ? jumpVertical(cell, move) : jumpHorizontal(cell, move);
+                if (jumpPoint >= 0) {
+                    int pastCost = pastCosts[cell] + distance(cell, jumpPoint) - 1 + grid.getCost(jumpPoint);
+                    relax(jumpPoint, cell, move, pastCost);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Records that jumpPoint can be reached from parent by the given move at the
+     * given cost; equal-cost arrivals from another direction are merged so that
+     * the pruning rules of every canonical arrival are honored.
+     */
+    private void relax (int jumpPoint, int parent, int move, int pastCost) {
+        int futureCost = problem.getDistance(jumpPoint, foundKey);
+        if (futureCost == DistanceField.UNREACHABLE) {
+            return;
+        }
+        boolean seen = parents[jumpPoint] >= 0 || frontier.contains(jumpPoint) || closedCells.contains(jumpPoint);
+        int arrival = 1 << move;
+        if (!seen || pastCost < pastCosts[jumpPoint]) {
+            pastCosts[jumpPoint] = pastCost;
+            parents[jumpPoint] = parent;
+            arrivals[jumpPoint] = (byte) arrival;
+        } else if (pastCost == pastCosts[jumpPoint] && (arrivals[jumpPoint] & arrival) == 0) {
+            arrivals[jumpPoint] |= arrival;
+        } else {
+            return;
+        }
+        int priority = pastCost + futureCost;
+        if (frontier.contains(jumpPoint)) {
+            frontier.decreaseKey(jumpPoint, priority);
+        } else {
+            closedCells.remove(jumpPoint);
+            frontier.push(jumpPoint, priority);
+        }
+    }
+
+    /**
+     * @param cell A jump point about to be expanded
+     * @return Bitmask, indexed by move code, of the directions worth jumping in
+     * given how the cell was reached
+     */
+    private int successorMoves (int cell) {
+        int arrival = arrivals[cell];
+        if ((arrival & FULL) != 0 || grid.get(cell) == MazeGrid.MUD || nearMud(cell)) {
+            return 0xF;
+        }
+        int moves = 0;
+        for (int move = MazeGrid.UP; move <= MazeGrid.RIGHT; move++) {
+            if ((arrival & (1 << move)) == 0) {
+                continue;
+            }
+            moves |= 1 << move;
+            if (move <= MazeGrid.DOWN) {
+                moves |= (1 << MazeGrid.LEFT) | (1 << MazeGrid.RIGHT);
+            } else {
+                moves |= forcedMoves(cell, move);
+            }
+        }
+        return moves;
+    }
+
+    /**
+     * @param cell A cell reached by a horizontal move
+     * @param move The horizontal move code that reached it
+     * @return Bitmask of the vertical moves forced at cell: those into an open
+     * cell whose counterpart behind cell is a wall or mud, i.e., where a
+     * "vertical first" path at uniform cost was not available
+     */
+    private int forcedMoves (int cell, int move) {
+        int behind = grid.step(cell, MazeGrid.reverse(move));
+        int forced = 0;
+        for (int vertical = MazeGrid.UP; vertical <= MazeGrid.DOWN; vertical++) {
+            if (grid.step(cell, vertical) >= 0 && (behind < 0 || !isFloor(grid.step(behind, vertical)))) {
+                forced |= 1 << vertical;
+            }
+        }
+        return forced;
+    }
+
+    /**
+     * Jumps from the given cell in a horizontal direction.
+     *
+     * @return The first jump point along the way, or -1 if there is none
+     */
+    private int jumpHorizontal (int cell, int move) {
+        while (true) {
+            cell = grid.step(cell, move);
+            if (cell < 0) {
+                return -1;
+            }
+            if (isJumpPoint(cell) || forcedMoves(cell, move) != 0) {
+                return cell;
+            }
+        }
+    }
+
+    /**
+     * Jumps from the given cell in a vertical direction, stopping at the first
+     * cell from which a horizontal jump would succeed.
+     *
+     * @return The first jump point along the way, or -1 if there is none
+     */
+    private int jumpVertical (int cell, int move) {
+        while (true) {
+            cell = grid.step(cell, move);
+            if (cell < 0) {
+                return -1;
+            }
+            if (isJumpPoint(cell) || jumpHorizontal(cell, MazeGrid.LEFT) >= 0
+                    || jumpHorizontal(cell, MazeGrid.RIGHT) >= 0) {
+                return cell;
+            }
+        }
+    }
+
+    /**
+     * @return Whether the given cell must stop any jump: mud, next to mud, or an
+     * objective of the current leg
+     */
+    private boolean isJumpPoint (int cell) {
+        return grid.get(cell) == MazeGrid.MUD || nearMud(cell) || problem.isObjective(cell, foundKey);
+    }
+
+    /**
+     * @return Whether the given cell (possibly -1) can be entered at unit cost
+     */
+    private boolean isFloor (int cell) {
+        return cell >= 0 && grid.get(cell) != MazeGrid.MUD;
+    }
+
+    private boolean nearMud (int cell) {
+        for (int move = MazeGrid.UP; move <= MazeGrid.RIGHT; move++) {
+            int next = grid.step(cell, move);
+            if (next >= 0 && grid.get(next) == MazeGrid.MUD) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return Block distance between two cells on the same row or column
+     */
+    private int distance (int from, int to) {
+        return Math.abs(grid.col(from) - grid.col(to)) + Math.abs(grid.row(from) - grid.row(to));
+    }
+
+    /**
+     * Walks the parent pointers from the objective back to the start, expanding
+     * each jump into its individual moves.
+     */
+    private ArrayList<String> getPath (int start, int last) {
+        ArrayList<String> result = new ArrayList<>();
+        for (int cell = last; cell != start; cell = parents[cell]) {
+            int parent = parents[cell], move;
+            if (grid.col(cell) == grid.col(parent)) {
+                move = grid.row(cell) < grid.row(parent) ? MazeGrid.UP : MazeGrid.DOWN;
+            } else {
+                move = grid.col(cell) < grid.col(parent) ? MazeGrid.LEFT : MazeGrid.RIGHT;
+            }
+            String action = MazeGrid.action(move);
+            for (int steps = distance(parent, cell); steps > 0; steps--) {
+                result.add(action);
+            }
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+}
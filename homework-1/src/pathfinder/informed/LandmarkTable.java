@@ -0,0 +1,281 @@
+package pathfinder.informed;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * ALT (A*, Landmarks, Triangle inequality) preprocessing: the exact cost from
+ * every cell to each of a few landmark cells, from which a lower bound on the
+ * cost between any two cells follows. Landmarks are chosen by farthest-point
+ * selection, each being the cell farthest from those already chosen, so that
+ * they sit at the fringes of the maze, where their bounds are tightest.
+ * <p>
+ * Since a move costs the cell it enters, the cost of a path reversed differs
+ * from the original only by the costs of its ends: d(L, x) = d(x, L) + cost(x) -
+ * cost(L). So one table, d(x, L), gives both triangle-inequality bounds:
+ * <pre>
+ * d(x, t) &gt;= d(x, L) - d(t, L)    and    d(x, t) &gt;= d(L, t) - d(L, x)
+ * </pre>
+ * Costs are stored cell by cell (the k landmarks of a cell side by side, so a
+ * bound reads one stretch of memory), as chars when every cost fits in 16 bits.
+ * <p>
+ * A LandmarkTable holds no reference to its maze and is Serializable, so that it
+ * can be saved alongside the maze with write and loaded with read; a checksum of
+ * the grid guards against loading it for a different maze.
+ */
+public class LandmarkTable implements Serializable {
+
+    // Fields
+    // -----------------------------------------------------------------------------
+    private static final long serialVersionUID = 1L;
+    private static final int UNREACHABLE = DistanceField.UNREACHABLE;
+    private static final char NARROW_UNREACHABLE = Character.MAX_VALUE;
+    final int rows, cols;
+    private final long gridChecksum;
+    private final int[] landmarks;
+
+    // costs[cell * k + i] is the cost from cell to landmark i; exactly one of the
+    // two arrays is used
+    private final char[] narrowCosts;
+    private final int[] wideCosts;
+
+
+    // Constructor
+    // -----------------------------------------------------------------------------
+
+    /**
+     * Constructs a new LandmarkTable over the given grid, with landmarks spread
+     * over the connected component of its first open cell.
+     *
+     * @param grid The MazeGrid to preprocess
+     * @param count Number of landmarks to choose, at least 1; fewer are chosen if
+     * the component has fewer cells
+     * @throws IllegalArgumentException If count is less than 1 or the grid has no
+     * open cell
+     */
+    public LandmarkTable (MazeGrid grid, int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("At least one landmark is needed");
+        }
+        int size = grid.size(), seed = 0;
+        while (seed < size && grid.isWall(seed)) {
+            seed++;
+        }
+        if (seed == size) {
+            throw new IllegalArgumentException("Landmarks need an open cell");
+        }
+        this.rows = grid.rows;
+        this.cols = grid.cols;
+        this.gridChecksum = ClusterGraph.checksum(grid);
+
+        // Farthest-point selection: nearest[cell] is the cost from cell to the
+        // nearest landmark so far, or to the seed before the first is chosen
+        DistanceField[] fields = new DistanceField[count];
+        int[] chosen = new int[count], nearest = new int[size];
+        DistanceField field = new DistanceField(grid, new int[] {seed});
+        for (int cell = 0; cell < size; cell++) {
+            nearest[cell] = field.getDistance(cell);
+        }
+        int chosenCount = 0;
+        while (chosenCount < count) {
+            int farthest = -1;
+            for (int cell = 0; cell < size; cell++) {
+                if (nearest[cell] != UNREACHABLE && nearest[cell] > 0
+                        && (farthest < 0 || nearest[cell] > nearest[farthest])) {
+                    farthest = cell;
+                }
+            }
+            if (farthest < 0) {
+                break; // Every cell of the component is already a landmark
+            }
+            field = new DistanceField(grid, new int[] {farthest});
+            for (int cell = 0; cell < size; cell++) {
+                // The seed itself is no landmark, so the first replaces its costs
+                int cost = field.getDistance(cell);
+                nearest[cell] = (chosenCount == 0) ? cost : Math.min(nearest[cell], cost);
+            }
+            fields[chosenCount] = field;
+            chosen[chosenCount++] = farthest;
+        }
+        this.landmarks = Arrays.copyOf(chosen, chosenCount);
+
+        int max = 0;
+        for (int i = 0; i < chosenCount; i++) {
+            for (int cell = 0; cell < size; cell++) {
+                int cost = fields[i].getDistance(cell);
+                if (cost != UNREACHABLE) {
+                    max = Math.max(max, cost);
+                }
+            }
+        }
+        boolean narrow = max < NARROW_UNREACHABLE;
+        this.narrowCosts = narrow ? new char[size * chosenCount] : null;
+        this.wideCosts = narrow ? null : new int[size * chosenCount];
+        for (int i = 0; i < chosenCount; i++) {
+            for (int cell = 0; cell < size; cell++) {
+                int cost = fields[i].getDistance(cell);
+                if (narrow) {
+                    narrowCosts[cell * chosenCount + i] = (cost == UNREACHABLE) ? NARROW_UNREACHABLE : (char) cost;
+                } else {
+                    wideCosts[cell * chosenCount + i] = cost;
+                }
+            }
+        }
+    }
+
+
+    // Methods
+    // -----------------------------------------------------------------------------
+
+    /**
+     * Writes this LandmarkTable to the given file with Java serialization.
+     *
+     * @param file Path of the file to write
+     * @throws IOException If the file cannot be written
+     */
+    public void write (Path file) throws IOException {
+        try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeObject(this);
+        }
+    }
+
+    /**
+     * Reads a LandmarkTable written by write, checking that it was built for the
+     * given grid.
+     *
+     * @param file Path of the file to read
+     * @param grid The MazeGrid the table will be used with
+     * @return The LandmarkTable in the file
+     * @throws IOException If the file cannot be read, does not hold a LandmarkTable,
+     * or holds one built for a different maze
+     */
+    public static LandmarkTable read (Path file, MazeGrid grid) throws IOException {
+        try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            Object table = in.readObject();
+            if (!(table instanceof LandmarkTable) || !((LandmarkTable) table).matches(grid)) {
+                throw new InvalidObjectException("File does not hold a LandmarkTable of this maze");
+            }
+            return (LandmarkTable) table;
+        } catch (ClassNotFoundException e) {
+            throw new InvalidObjectException(e.getMessage());
+        }
+    }
+
+    /**
+     * @param grid A MazeGrid
+     * @return Whether this LandmarkTable was built for a maze identical to grid
+     */
+    public boolean matches (MazeGrid grid) {
+        return grid.rows == rows && grid.cols == cols && ClusterGraph.checksum(grid) == gridChecksum;
+    }
+
+    /**
+     * @return The flat cell indices of the landmarks, in the order they were chosen
+     */
+    public int[] getLandmarks () {
+        return landmarks.clone();
+    }
+
+    /**
+     * @param cell Flat cell index
+     * @param landmark Index of a landmark, in the order they were chosen
+     * @return The exact cost from cell to the landmark, or DistanceField.UNREACHABLE
+     */
+    public int getCost (int cell, int landmark) {
+        int i = cell * landmarks.length + landmark;
+        if (narrowCosts == null) {
+            return wideCosts[i];
+        }
+        return (narrowCosts[i] == NARROW_UNREACHABLE) ? UNREACHABLE : narrowCosts[i];
+    }
+
+    /**
+     * Prepares the lower bounds on the cost from any cell to the nearest of the
+     * given target cells, folding the targets' entries of the table into two
+     * constants per landmark.
+     *
+     * @param grid The MazeGrid this table was built for, whose terrain is unchanged since
+     * @param targets Flat cell indices of the targets
+     * @return The Bounds to the targets
+     */
+    Bounds boundsTo (MazeGrid grid, int[] targets) {
+        int k = landmarks.length;
+        int[] farthestTo = new int[k], nearestFrom = new int[k];
+        for (int i = 0; i < k; i++) {
+            // d(x, T) >= d(x, L) - max d(t, L), if every target reaches L, and
+            // d(x, T) >= min d(L, t) - d(L, x), over the targets L reaches
+            farthestTo[i] = 0;
+            nearestFrom[i] = UNREACHABLE;
+            for (int target : targets) {
+                int toLandmark = getCost(target, i);
+                if (toLandmark == UNREACHABLE) {
+                    farthestTo[i] = UNREACHABLE;
+                    continue;
+                }
+                if (farthestTo[i] != UNREACHABLE) {
+                    farthestTo[i] = Math.max(farthestTo[i], toLandmark);
+                }
+                nearestFrom[i] = Math.min(nearestFrom[i], toLandmark + grid.getCost(target));
+            }
+        }
+        return new Bounds(grid, farthestTo, nearestFrom);
+    }
+
+    /**
+     * Lower bounds on the cost from any cell to the nearest of a set of targets,
+     * made by boundsTo for a grid whose terrain is then checked with isCurrent. The
+     * landmark's own cost, common to both sides of d(L, t) - d(L, x), cancels.
+     */
+    class Bounds {
+
+        private final MazeGrid grid;
+        private final long gridVersion;
+        private final int[] farthestTo, nearestFrom;
+
+        private Bounds (MazeGrid grid, int[] farthestTo, int[] nearestFrom) {
+            this.grid = grid;
+            this.gridVersion = grid.getVersion();
+            this.farthestTo = farthestTo;
+            this.nearestFrom = nearestFrom;
+        }
+
+        /**
+         * @return Whether the grid's terrain is unchanged since these bounds were made
+         */
+        boolean isCurrent () {
+            return grid.getVersion() == gridVersion;
+        }
+
+        /**
+         * @param cell Flat cell index
+         * @return The greatest of the landmarks' lower bounds on the cost from cell
+         * to the nearest target, or 0 if none applies
+         */
+        int getLowerBound (int cell) {
+            int bound = 0, k = landmarks.length;
+            for (int i = 0; i < k; i++) {
+                int toLandmark = getCost(cell, i);
+                if (toLandmark == UNREACHABLE) {
+                    continue;
+                }
+                if (farthestTo[i] != UNREACHABLE) {
+                    bound = Math.max(bound, toLandmark - farthestTo[i]);
+                }
+                if (nearestFrom[i] != UNREACHABLE) {
+                    bound = Math.max(bound, nearestFrom[i] - toLandmark - grid.getCost(cell));
+                }
+            }
+            return bound;
+        }
+
+    }
+
+}
@@ -0,0 +1,395 @@
+package pathfinder.informed;
+
+/**
+ * Compact representation of a maze's cells, in which every cell is stored as a
+ * 2-bit code packed 32-to-a-long and addressed by its flat index:
+ * <pre>
+ * cell = row * cols + col
+ * </pre>
+ * Compared to a String[] maze (one or two bytes per char plus per-row object
+ * overhead), this uses a quarter of a byte per cell and needs no bounds-checked
+ * charAt indirection to test for walls, mud, or goals.
+ */
+public class MazeGrid {
+
+    // Fields
+    // -----------------------------------------------------------------------------
+    public static final int OPEN = 0, MUD = 1, WALL = 2, GOAL = 3;
+    public static final int UP = 0, DOWN = 1, LEFT = 2, RIGHT = 3;
+    private static final String[] ACTIONS = {"U", "D", "L", "R"};
+    public final int rows, cols;
+    private final long[] cells;
+    private static final long LOW_BITS = 0x5555555555555555L;
+    private volatile long version;
+    private volatile Census census;
+    private ConnectedComponents components;
+
+
+    // Constructor
+    // -----------------------------------------------------------------------------
+
+    /**
+     * Constructs a new MazeGrid of the given dimensions in which every cell is
+     * OPEN; cells are then filled in using set.
+     *
+     * @param rows Number of rows in the maze
+     * @param cols Number of columns in the maze
+     */
+    MazeGrid (int rows, int cols) {
+        this(rows, cols, true);
+    }
+
+    /**
+     * Constructs a new MazeGrid of the given dimensions, optionally without its
+     * on-heap storage, for subclasses that keep the packed words elsewhere.
+     *
+     * @param rows Number of rows in the maze
+     * @param cols Number of columns in the maze
+     * @param onHeap Whether to allocate the packed words as a long[]
+     */
+    protected MazeGrid (int rows, int cols, boolean onHeap) {
+        if ((long) rows * cols > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Maze too large to index");
+        }
+        this.rows = rows;
+        this.cols = cols;
+        this.cells = onHeap ? new long[getWordCount()] : null;
+    }
+
+
+    // Methods
+    // -----------------------------------------------------------------------------
+
+    /**
+     * Returns the code that a maze character is stored as in the grid. Initial
+     * and key positions are recorded by MazeProblem and stored as OPEN.
+     *
+     * @param c A maze character, one of 'X', 'M', 'G', 'I', 'K', '.'
+     * @return Integer cell code (OPEN, MUD, WALL, or GOAL)
+     */
+    public static int encode (char c) {
+        switch (c) {
+        case 'X':
+            return WALL;
+        case 'M':
+            return MUD;
+        case 'G':
+            return GOAL;
+        case 'I':
+        case 'K':
+        case '.':
+            return OPEN;
+        default:
+            throw new IllegalArgumentException("Maze formatted invalidly");
+        }
+    }
+
+    /**
+     * @return The number of longs needed to hold every cell's 2-bit code.
+     */
+    protected int getWordCount () {
+        return (rows * cols + 31) >>> 5;
+    }
+
+    /**
+     * @return The total number of cells (rows * cols) in this grid.
+     */
+    public int size () {
+        return rows * cols;
+    }
+
+    /**
+     * @param col Column of the cell
+     * @param row Row of the cell
+     * @return The flat index of the cell at (col, row)
+     */
+    public int index (int col, int row) {
+        return row * cols + col;
+    }
+
+    /**
+     * @param cell Flat cell index
+     * @return Column of the given cell
+     */
+    public int col (int cell) {
+        return cell % cols;
+    }
+
+    /**
+     * @param cell Flat cell index
+     * @return Row of the given cell
+     */
+    public int row (int cell) {
+        return cell / cols;
+    }
+
+    /**
+     * @param col Column to test
+     * @param row Row to test
+     * @return Whether or not (col, row) lies within the grid
+     */
+    public boolean inBounds (int col, int row) {
+        return row >= 0 && row < rows && col >= 0 && col < cols;
+    }
+
+    /**
+     * @param move A move code (UP, DOWN, LEFT, or RIGHT)
+     * @return The action String ("U", "D", "L", or "R") for the given move
+     */
+    public static String action (int move) {
+        return ACTIONS[move];
+    }
+
+    /**
+     * @param action An action String ("U", "D", "L", or "R")
+     * @return The move code (UP, DOWN, LEFT, or RIGHT) of the given action
+     */
+    public static int move (String action) {
+        switch (action) {
+        case "U":
+            return UP;
+        case "D":
+            return DOWN;
+        case "L":
+            return LEFT;
+        case "R":
+            return RIGHT;
+        default:
+            throw new IllegalArgumentException("Unknown action " + action);
+        }
+    }
+
+    /**
+     * @param move A move code (UP, DOWN, LEFT, or RIGHT)
+     * @return The move code that undoes the given one
+     */
+    public static int reverse (int move) {
+        return move ^ 1;
+    }
+
+    /**
+     * @param cell Flat cell index
+     * @param move A move code (UP, DOWN, LEFT, or RIGHT)
+     * @return The cell reached by making the given move from cell, or -1 if
+     * that would leave the grid or enter a wall
+     */
+    public int step (int cell, int move) {
+        int next = adjacent(cell, move);
+        return (next < 0 || isWall(next)) ? -1 : next;
+    }
+
+    /**
+     * Returns the cell next to the given one in the direction of a move, wall or
+     * not, e.g., to walk a path back into a start that lies on a wall, which step
+     * cannot enter.
+     *
+     * @param cell Flat cell index
+     * @param move A move code (UP, DOWN, LEFT, or RIGHT)
+     * @return The cell on the given side of cell, or -1 if that would leave the grid
+     */
+    public int adjacent (int cell, int move) {
+        int next;
+        switch (move) {
+        case UP:
+            next = cell - cols; break;
+        case DOWN:
+            next = cell + cols; break;
+        case LEFT:
+            next = (cell % cols == 0) ? -1 : cell - 1; break;
+        default:
+            next = (cell % cols == cols - 1) ? -1 : cell + 1; break;
+        }
+        return (next >= rows * cols) ? -1 : next;
+    }
+
+    /**
+     * Fills the given buffer with the cells reachable from cell in one move,
+     * without allocating; neighbors[move] holds the cell reached by that move
+     * code, or -1 if the move is blocked.
+     *
+     * @param cell Flat cell index to expand
+     * @param neighbors Buffer of length at least 4 to write into
+     * @return The number of unblocked moves
+     */
+    public int getNeighbors (int cell, int[] neighbors) {
+        int count = 0;
+        for (int move = UP; move <= RIGHT; move++) {
+            neighbors[move] = step(cell, move);
+            if (neighbors[move] >= 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @param cell Flat cell index
+     * @return The 2-bit code (OPEN, MUD, WALL, or GOAL) stored at the given cell
+     */
+    public int get (int cell) {
+        return (int) (getWord(cell >>> 5) >>> ((cell & 31) << 1)) & 3;
+    }
+
+    /**
+     * [Mutator] Stores the given code at the given cell.
+     *
+     * @param cell Flat cell index
+     * @param code One of OPEN, MUD, WALL, or GOAL
+     */
+    void set (int cell, int code) {
+        int shift = (cell & 31) << 1;
+        setWord(cell >>> 5, (getWord(cell >>> 5) & ~(3L << shift)) | ((long) code << shift));
+    }
+
+    /**
+     * [Mutator] Changes the terrain of a non-goal cell after construction, e.g., a
+     * door closing or mud appearing, and advances the grid's version so that data
+     * derived from the old terrain can tell it is stale.
+     *
+     * @param cell Flat cell index
+     * @param c The new terrain, one of '.', 'M', 'X'
+     * @return The cell's previous code (OPEN, MUD, or WALL)
+     * @throws IllegalArgumentException If c is not a terrain character or the
+     * cell is a goal
+     */
+    public synchronized int setTerrain (int cell, char c) {
+        int previous = get(cell);
+        if ((c != '.' && c != 'M' && c != 'X') || previous == GOAL) {
+            throw new IllegalArgumentException("Only '.', 'M', and 'X' cells can be changed");
+        }
+        set(cell, encode(c));
+        version++;
+        if (components != null) {
+            components.terrainChanged(cell, previous, get(cell));
+        }
+        return previous;
+    }
+
+    /**
+     * Returns the connected components of the grid's non-wall cells, labeling them
+     * on first use; setTerrain keeps them up to date from then on. Labeling takes
+     * an int per cell, so no search does it unasked.
+     *
+     * @return The grid's ConnectedComponents
+     */
+    public synchronized ConnectedComponents getComponents () {
+        if (components == null) {
+            components = new ConnectedComponents(this);
+        }
+        return components;
+    }
+
+    /**
+     * @return The grid's ConnectedComponents if getComponents has labeled them and
+     * no wall has since been added, else null
+     */
+    synchronized ConnectedComponents getCurrentComponents () {
+        return (components != null && components.isCurrent()) ? components : null;
+    }
+
+    /**
+     * Returns whether any cell is MUD, i.e., whether step costs are not uniform.
+     *
+     * @return Whether or not the grid holds a MUD cell
+     */
+    public boolean hasMud () {
+        return getCensus().mud > 0;
+    }
+
+    /**
+     * @return The number of WALL cells in the grid
+     */
+    public int getWallCount () {
+        return getCensus().walls;
+    }
+
+    /**
+     * @return The counts of MUD and WALL cells, found by scanning the packed words
+     * 32 cells at a time and kept until the next setTerrain
+     */
+    private Census getCensus () {
+        Census counted = census;
+        long current = version;
+        if (counted != null && counted.version == current) {
+            return counted;
+        }
+        int mud = 0, walls = 0;
+        for (int i = 0, words = getWordCount(); i < words; i++) {
+            long word = getWord(i), high = word >>> 1;
+            // MUD is 01 and WALL is 10, read as (high bit, low bit) of each code
+            mud += Long.bitCount(word & ~high & LOW_BITS);
+            walls += Long.bitCount(high & ~word & LOW_BITS);
+        }
+        counted = new Census(current, mud, walls);
+        census = counted;
+        return counted;
+    }
+
+    /**
+     * @return A counter advanced by every call to setTerrain
+     */
+    public long getVersion () {
+        return version;
+    }
+
+    /**
+     * @param index Index of a packed word, i.e., cell / 32
+     * @return The 64-bit word holding the codes of cells [32 * index, 32 * index + 32)
+     */
+    protected long getWord (int index) {
+        return cells[index];
+    }
+
+    /**
+     * [Mutator] Replaces a packed word of cell codes.
+     *
+     * @param index Index of a packed word, i.e., cell / 32
+     * @param word The new 64-bit word
+     */
+    protected void setWord (int index, long word) {
+        cells[index] = word;
+    }
+
+    public boolean isWall (int cell) {
+        return get(cell) == WALL;
+    }
+
+    public boolean isGoal (int cell) {
+        return get(cell) == GOAL;
+    }
+
+    /**
+     * Returns the cost associated with moving into a cell; walls cost 0 since
+     * they can never be entered.
+     *
+     * @param cell Flat cell index
+     * @return Integer cost of moving into the cell
+     */
+    public int getCost (int cell) {
+        switch (get(cell)) {
+        case MUD:
+            return 3;
+        case WALL:
+            return 0;
+        default:
+            return 1;
+        }
+    }
+
+    /**
+     * The number of MUD and WALL cells at one version of the grid.
+     */
+    private static class Census {
+
+        final long version;
+        final int mud, walls;
+
+        Census (long version, int mud, int walls) {
+            this.version = version;
+            this.mud = mud;
+            this.walls = walls;
+        }
+
+    }
+
+}
@@ -0,0 +1,216 @@
+package pathfinder.informed;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Parses maze characters straight into a MazeGrid, recording the initial, key,
+ * and goal cells along the way; this is the parsing step shared by the
+ * MazeProblem(String[]) constructor and by load, which reads a maze text file
+ * through a memory mapping so that very large maps never exist as Strings.
+ */
+public class MazeLoader {
+
+    // Fields
+    // -----------------------------------------------------------------------------
+    private static final long CHUNK_SIZE = 1L << 30;
+    final MazeGrid grid;
+    int initialCell = -1;
+    private int[] keyCells = new int[4], goalCells = new int[16];
+    private int keyCount, goalCount;
+
+
+    // Constructor
+    // -----------------------------------------------------------------------------
+
+    /**
+     * Constructs a new MazeLoader that fills a grid of the given dimensions.
+     *
+     * @param rows Number of rows in the maze
+     * @param cols Number of columns in the maze
+     */
+    MazeLoader (int rows, int cols) {
+        this(new MazeGrid(rows, cols));
+    }
+
+    /**
+     * Constructs a new MazeLoader that fills the given, all-OPEN grid.
+     *
+     * @param grid The MazeGrid to parse into
+     */
+    MazeLoader (MazeGrid grid) {
+        this.grid = grid;
+    }
+
+
+    // Methods
+    // -----------------------------------------------------------------------------
+
+    /**
+     * Parses an array of Strings, as accepted by the MazeProblem constructor.
+     *
+     * @param maze An array of Strings in which characters represent the legal maze
+     * entities
+     * @return The MazeLoader holding the parsed maze
+     */
+    static MazeLoader fromStrings (String[] maze) {
+        int rows = maze.length, cols = (rows == 0) ? 0 : maze[0].length();
+        MazeLoader loader = new MazeLoader(rows, cols);
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                loader.put(col, row, maze[row].charAt(col));
+            }
+        }
+        return loader;
+    }
+
+    /**
+     * Loads a MazeProblem from a text file with one maze row per line (separated by
+     * "\n" or "\r\n"), using the same characters as the MazeProblem constructor. The
+     * file is memory-mapped and parsed byte-by-byte into the packed grid, so peak
+     * heap use is the grid itself (a quarter byte per cell) rather than the
+     * text as Strings.
+     *
+     * @param file Path of the maze text file
+     * @return A new MazeProblem for the maze in the file
+     * @throws IOException If the file cannot be read
+     * @throws IllegalArgumentException If the file is not a rectangular, validly
+     * formatted maze
+     */
+    public static MazeProblem load (Path file) throws IOException {
+        return load(file, false, null);
+    }
+
+    /**
+     * Loads a MazeProblem from a text file as in load, but into an OffHeapMazeGrid
+     * held in a direct ByteBuffer, so the grid does not occupy the Java heap.
+     *
+     * @param file Path of the maze text file
+     * @return A new MazeProblem for the maze in the file
+     * @throws IOException If the file cannot be read
+     */
+    public static MazeProblem loadOffHeap (Path file) throws IOException {
+        return load(file, true, null);
+    }
+
+    /**
+     * Loads a MazeProblem from a text file as in load, but into an OffHeapMazeGrid
+     * held in a memory mapping of backingFile, for maps too large to keep resident.
+     *
+     * @param file Path of the maze text file
+     * @param backingFile Path of the file to store the packed grid in
+     * @return A new MazeProblem for the maze in the file
+     * @throws IOException If either file cannot be read or mapped
+     */
+    public static MazeProblem loadOffHeap (Path file, Path backingFile) throws IOException {
+        return load(file, true, backingFile);
+    }
+
+    private static MazeProblem load (Path file, boolean offHeap, Path backingFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+
+            // The first line fixes the column count and line separator, from which
+            // the row count follows; every row is checked against it while parsing
+            MappedByteBuffer first = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, CHUNK_SIZE));
+            int cols = 0;
+            while (cols < first.limit() && first.get(cols) != '\n') {
+                cols++;
+            }
+            int separator = (cols < first.limit()) ? 1 : 0;
+            if (cols > 0 && first.get(cols - 1) == '\r') {
+                cols--;
+                separator++;
+            }
+            long lineLength = cols + separator;
+            long rows = (lineLength == 0) ? 0 : (size + separator) / lineLength;
+            if (rows * lineLength != size && rows * lineLength != size + separator) {
+                throw new IllegalArgumentException("Maze formatted invalidly");
+            }
+            if (rows > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Maze too large to index");
+            }
+
+            MazeGrid grid;
+            if (!offHeap) {
+                grid = new MazeGrid((int) rows, cols);
+            } else if (backingFile == null) {
+                grid = new OffHeapMazeGrid((int) rows, cols);
+            } else {
+                grid = new OffHeapMazeGrid((int) rows, cols, backingFile);
+            }
+            MazeLoader loader = new MazeLoader(grid);
+            int row = 0, col = 0;
+            for (long offset = 0; offset < size; offset += CHUNK_SIZE) {
+                MappedByteBuffer chunk = (offset == 0) ? first
+                        : channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(size - offset, CHUNK_SIZE));
+                for (int i = 0, limit = chunk.limit(); i < limit; i++) {
+                    byte b = chunk.get(i);
+                    if (b == '\n') {
+                        if (col != cols) {
+                            throw new IllegalArgumentException("Maze formatted invalidly");
+                        }
+                        row++;
+                        col = 0;
+                    } else if (b != '\r') {
+                        if (col == cols) {
+                            throw new IllegalArgumentException("Maze formatted invalidly");
+                        }
+                        loader.put(col++, row, (char) b);
+                    }
+                }
+            }
+            if (col != 0 && (col != cols || row != rows - 1)) {
+                throw new IllegalArgumentException("Maze formatted invalidly");
+            }
+            return new MazeProblem(loader);
+        }
+    }
+
+    /**
+     * Stores the given maze character at (col, row), validating it the same way as
+     * the MazeProblem constructor, and records it if it is the initial state, a key,
+     * or a goal.
+     *
+     * @param col Column of the character
+     * @param row Row of the character
+     * @param c A maze character, one of 'X', 'M', 'G', 'I', 'K', '.'
+     */
+    void put (int col, int row, char c) {
+        int cell = grid.index(col, row);
+        switch (c) {
+        case 'I':
+            initialCell = cell; break;
+        case 'G':
+            if (goalCount == goalCells.length) {
+                goalCells = Arrays.copyOf(goalCells, 2 * goalCount);
+            }
+            goalCells[goalCount++] = cell; break;
+        case 'K':
+            if (keyCount == keyCells.length) {
+                keyCells = Arrays.copyOf(keyCells, 2 * keyCount);
+            }
+            keyCells[keyCount++] = cell; break;
+        }
+        grid.set(cell, MazeGrid.encode(c));
+    }
+
+    /**
+     * @return The flat cell index of every key found, in the order found
+     */
+    int[] getKeyCells () {
+        return Arrays.copyOf(keyCells, keyCount);
+    }
+
+    /**
+     * @return The flat cell index of every goal found, in the order found
+     */
+    int[] getGoalCells () {
+        return Arrays.copyOf(goalCells, goalCount);
+    }
+
+}
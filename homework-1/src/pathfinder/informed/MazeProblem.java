@@ -2,6 +2,8 @@ package pathfinder.informed;
 
 import java.util.Map;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 
@@ -14,9 +16,14 @@ public class MazeProblem {
 
     // Fields
     // -----------------------------------------------------------------------------
-    private String[] maze;
-    private int rows, cols;
+    private final MazeGrid grid;
+    private final int[] keyCells, goalCells;
+    private final boolean gridGoals;
+    private final GoalIndex goalIndex;
     public final MazeState INITIAL_STATE, KEY_STATE;
+    public final int INITIAL_CELL, KEY_CELL;
+    private volatile DistanceField goalField;
+    private volatile LandmarkTable.Bounds keyLandmarks, goalLandmarks;
     public final HashSet<MazeState> GOAL_STATES = new HashSet<>();
     private static final Map<String, MazeState> TRANS_MAP = createTransitions();
     
@@ -58,39 +65,244 @@ public class MazeProblem {
      * </pre>
      */
     MazeProblem (String[] maze) {
-        this.maze = maze;
-        this.rows = maze.length;
-        this.cols = (rows == 0) ? 0 : maze[0].length();
-        MazeState foundInitial = null, foundKey = null;
-        
-        // Find the initial and goal state in the given maze, and then
-        // store in fields once found
-        for (int row = 0; row < rows; row++) {
-            for (int col = 0; col < cols; col++) {
-                switch (maze[row].charAt(col)) {
-                case 'I':
-                    foundInitial = new MazeState(col, row); break;
-                case 'G':
-                	GOAL_STATES.add(new MazeState(col, row)); break;
-                case 'K':
-                	foundKey = new MazeState(col, row); break;
-                case '.':
-                case 'M':
-                case 'X':
-                    break;
-                default:
-                    throw new IllegalArgumentException("Maze formatted invalidly");
-                }
+        this(MazeLoader.fromStrings(maze));
+    }
+    
+    /**
+     * Constructs a new MazeProblem from a maze already parsed into a MazeGrid, e.g.,
+     * by MazeLoader.load; the last 'I' and 'K' found become the initial and key states.
+     * 
+     * @param loaded The MazeLoader holding the parsed maze
+     */
+    MazeProblem (MazeLoader loaded) {
+        this.grid = loaded.grid;
+        this.keyCells = loaded.getKeyCells();
+        this.goalCells = loaded.getGoalCells();
+        for (int goal : goalCells) {
+            GOAL_STATES.add(toState(goal));
+        }
+        INITIAL_CELL = loaded.initialCell;
+        KEY_CELL = (keyCells.length == 0) ? -1 : keyCells[keyCells.length - 1];
+        INITIAL_STATE = (INITIAL_CELL < 0) ? null : toState(INITIAL_CELL);
+        KEY_STATE = (KEY_CELL < 0) ? null : toState(KEY_CELL);
+        gridGoals = true;
+        goalIndex = new GoalIndex(grid, goalCells);
+    }
+    
+    /**
+     * Constructs a new MazeProblem over an existing, shared grid with its own initial
+     * state, key, and set of goals, which need not match the 'I', 'K', and 'G' cells
+     * of the maze the grid was parsed from. Lets many queries run against one
+     * immutable grid without re-parsing or copying it.
+     * <p>
+     * Goals on walls can never be entered, so they are left out of the goal set,
+     * as if they were not given; a query whose goals are all walled, like one whose
+     * key is walled, has no solution. The start may be a wall, since it need only
+     * be left.
+     * 
+     * @param grid The MazeGrid to search, which is not modified
+     * @param initial The MazeState (col, row) to start from
+     * @param key The MazeState (col, row) of the key
+     * @param goals The MazeStates (col, row) of the goals; those on walls are dropped
+     * @throws IllegalArgumentException If initial is null, or any state lies outside
+     * the grid
+     */
+    MazeProblem (MazeGrid grid, MazeState initial, MazeState key, Collection<MazeState> goals) {
+        if (initial == null) {
+            throw new IllegalArgumentException("A query needs an initial state");
+        }
+        checkBounds(grid, initial);
+        if (key != null) {
+            checkBounds(grid, key);
+        }
+        for (MazeState goal : goals) {
+            checkBounds(grid, goal);
+        }
+        this.grid = grid;
+        INITIAL_STATE = initial;
+        KEY_STATE = key;
+        INITIAL_CELL = toCell(initial);
+        KEY_CELL = toCell(key);
+        keyCells = (key == null) ? new int[0] : new int[] {KEY_CELL};
+        for (MazeState goal : goals) {
+            if (!grid.isWall(toCell(goal))) {
+                GOAL_STATES.add(goal);
             }
         }
-        INITIAL_STATE = foundInitial;
-        KEY_STATE = foundKey;
+        goalCells = new int[GOAL_STATES.size()];
+        int i = 0;
+        for (MazeState goal : GOAL_STATES) {
+            goalCells[i++] = toCell(goal);
+        }
+        Arrays.sort(goalCells);
+        gridGoals = false;
+        goalIndex = new GoalIndex(grid, goalCells);
     }
     
     
     // Methods
     // -----------------------------------------------------------------------------
     
+    /**
+     * Rejects a state outside the grid, whose flat index would otherwise alias a
+     * cell of another row or lie past the last one.
+     * 
+     * @param grid The MazeGrid the state is meant for
+     * @param state A MazeState (col, row)
+     * @throws IllegalArgumentException If the state lies outside the grid
+     */
+    private static void checkBounds (MazeGrid grid, MazeState state) {
+        if (!grid.inBounds(state.col, state.row)) {
+            throw new IllegalArgumentException("State (" + state.col + ", " + state.row + ") lies outside the maze");
+        }
+    }
+    
+    /**
+     * @return The packed grid that backs this MazeProblem.
+     */
+    public MazeGrid getGrid () {
+        return grid;
+    }
+    
+    /**
+     * [Mutator] Changes the terrain of the given state's cell at runtime, e.g., a
+     * door closing or mud appearing; see MazeGrid.setTerrain. The change is seen
+     * by every MazeProblem sharing this one's grid.
+     * 
+     * @param state A MazeState (col, row) that is not a Goal
+     * @param c The new terrain, one of '.', 'M', 'X'
+     */
+    public void setTerrain (MazeState state, char c) {
+        grid.setTerrain(toCell(state), c);
+    }
+    
+    /**
+     * [Mutator] Precomputes, once, the exact cost from every cell to its nearest
+     * Goal with a multi-source Dijkstra. Afterward, getGoalDistance returns these
+     * exact costs instead of block distances (a perfect heuristic), and searches
+     * can read the key-to-goal leg straight from the field. A field made stale
+     * by MazeGrid.setTerrain is ignored until this is called again.
+     * 
+     * @return The DistanceField of exact costs to the nearest Goal
+     */
+    public synchronized DistanceField precomputeGoalDistances () {
+        if (goalField == null || !goalField.isCurrent()) {
+            goalField = new DistanceField(grid, goalCells);
+        }
+        return goalField;
+    }
+    
+    /**
+     * [Mutator] Installs the ALT lower bounds of the given LandmarkTable, after
+     * which getDistance returns the greater of the block distance and the
+     * landmarks' bound, a far better heuristic on mazes with long walls. Bounds
+     * made stale by MazeGrid.setTerrain are ignored until this is called again
+     * with a table of the new terrain.
+     * 
+     * @param table A LandmarkTable built (or read) for this problem's maze
+     * @throws IllegalArgumentException If table was built for a different maze
+     */
+    public void useLandmarks (LandmarkTable table) {
+        if (!table.matches(grid)) {
+            throw new IllegalArgumentException("LandmarkTable built for a different maze");
+        }
+        goalLandmarks = table.boundsTo(grid, goalCells);
+        keyLandmarks = (KEY_CELL < 0) ? null : table.boundsTo(grid, new int[] {KEY_CELL});
+    }
+    
+    /**
+     * @return The DistanceField computed by precomputeGoalDistances, or null if
+     * it has not been computed or the terrain has changed since
+     */
+    public DistanceField getGoalDistanceField () {
+        DistanceField field = goalField;
+        return (field != null && field.isCurrent()) ? field : null;
+    }
+    
+    /**
+     * @return The flat cell indices of every Goal, in increasing order; callers
+     * must not modify the returned array.
+     */
+    int[] getGoalCells () {
+        return goalCells;
+    }
+    
+    /**
+     * @return The flat cell indices of every Key, in increasing order; callers
+     * must not modify the returned array.
+     */
+    int[] getKeyCells () {
+        return keyCells;
+    }
+    
+    /**
+     * Returns whether the key and some goal lie in the initial state's connected
+     * component, in O(1) once the grid's ConnectedComponents are labeled (and
+     * O(goals) for a problem with its own goal set). If not, no solution exists.
+     * Labels the grid's components if they are not already.
+     * 
+     * @return Boolean of whether or not a solution may exist.
+     */
+    public boolean isSolvable () {
+        return KEY_STATE != null && canReachGoalThrough(KEY_CELL, grid.getComponents());
+    }
+    
+    /**
+     * Returns whether a solution may exist, as in isSolvable, but consulting the
+     * grid's ConnectedComponents only if they are already labeled and current.
+     * 
+     * @return Boolean of whether or not a solution may exist.
+     */
+    boolean mayBeSolvable () {
+        return KEY_STATE != null && canReachGoalThrough(KEY_CELL);
+    }
+    
+    /**
+     * @param via A flat cell index
+     * @return Whether or not the given cell and some goal may lie in the initial
+     * state's connected component; true if the grid's ConnectedComponents are not
+     * labeled and current
+     */
+    boolean canReachGoalThrough (int via) {
+        ConnectedComponents components = grid.getCurrentComponents();
+        return components == null || canReachGoalThrough(via, components);
+    }
+    
+    private boolean canReachGoalThrough (int via, ConnectedComponents components) {
+        int start = components.getComponent(INITIAL_CELL);
+        if (start == ConnectedComponents.NONE) {
+            return true; // A start on a wall can still be left, so leave it to the search
+        }
+        if (components.getComponent(via) != start) {
+            return false;
+        }
+        if (gridGoals) {
+            return components.hasGoal(start);
+        }
+        for (int goal : goalCells) {
+            if (components.getComponent(goal) == start) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * @param state A MazeState (col, row), or null
+     * @return The flat cell index of the given state, or -1 if state is null
+     */
+    public int toCell (MazeState state) {
+        return state == null ? -1 : grid.index(state.col, state.row);
+    }
+    
+    /**
+     * @param cell A flat cell index
+     * @return A new MazeState (col, row) for the given cell
+     */
+    public MazeState toState (int cell) {
+        return new MazeState(grid.col(cell), grid.row(cell));
+    }
+    
     /**
      * Returns whether or not the given state is a Goal state.
      * 
@@ -98,7 +310,17 @@ public class MazeProblem {
      * @return Boolean of whether or not the given state is a Goal.
      */
     public boolean isGoal (MazeState state) {
-        return GOAL_STATES.contains(state);
+        return grid.inBounds(state.col, state.row) && isGoal(toCell(state));
+    }
+    
+    /**
+     * Returns whether or not the given cell is a Goal.
+     * 
+     * @param cell A flat cell index to test
+     * @return Boolean of whether or not the given cell is a Goal.
+     */
+    public boolean isGoal (int cell) {
+        return gridGoals ? grid.isGoal(cell) : Arrays.binarySearch(goalCells, cell) >= 0;
     }
     
     /**
@@ -124,6 +346,18 @@ public class MazeProblem {
     	return foundKey ? isGoal(state) : isKey(state);
     }
     
+    /**
+     * Cell-indexed version of isObjective.
+     * 
+     * @param cell A flat cell index
+     * @param foundKey boolean
+     * @return Boolean isGoal if foundKey is true and
+     * whether cell is the KEY_CELL if foundKey is false
+     */
+    public boolean isObjective (int cell, boolean foundKey) {
+        return foundKey ? isGoal(cell) : cell == KEY_CELL;
+    }
+    
     /**
      * Returns the method getGoalDistance if foundKey is true and
      *  getKeyDistance if foundKey is false
@@ -134,7 +368,25 @@ public class MazeProblem {
      * getKeyDistance if foundKey is false
      */
     public int getDistance (MazeState state, boolean foundKey) {  	
-    	return foundKey ? getGoalDistance(state) : getKeyDistance(state);
+    	return getDistance(toCell(state), foundKey);
+    }
+    
+    /**
+     * Cell-indexed version of getDistance, raised to the landmarks' lower bound
+     * if useLandmarks was called and the terrain has not changed since.
+     * 
+     * @param cell A flat cell index
+     * @param foundKey boolean
+     * @return getGoalDistance if foundKey is true and
+     * getKeyDistance if foundKey is false, or the landmarks' bound if greater
+     */
+    public int getDistance (int cell, boolean foundKey) {
+        int distance = foundKey ? getGoalDistance(cell) : getKeyDistance(cell);
+        LandmarkTable.Bounds bounds = foundKey ? goalLandmarks : keyLandmarks;
+        if (bounds == null || !bounds.isCurrent() || (foundKey && getGoalDistanceField() != null)) {
+            return distance; // No bound, or the exact costs of the goal field
+        }
+        return Math.max(distance, bounds.getLowerBound(cell));
     }
     
     /**
@@ -144,17 +396,24 @@ public class MazeProblem {
      * @return Integer block distance to nearest Goal State.
      */
     public int getGoalDistance (MazeState state) {
-    	int minDistance = Integer.MAX_VALUE;
-    	for (MazeState goalState : GOAL_STATES) {
-    		int distance = Math.abs(state.col - goalState.col)
-    					 + Math.abs(state.row - goalState.row);
-    		
-    		if (distance < minDistance) {
-    			minDistance = distance;
-    		}
-    	}
-
-    	return minDistance;
+        return getGoalDistance(toCell(state));
+    }
+    
+    /**
+     * Returns the block distance from the given cell to the nearest Goal, found
+     * with the GoalIndex built at construction, or the exact cost to it if
+     * precomputeGoalDistances has been called.
+     * 
+     * @param cell A flat cell index
+     * @return Integer distance to nearest Goal, or DistanceField.UNREACHABLE
+     * if there is none.
+     */
+    public int getGoalDistance (int cell) {
+        DistanceField field = getGoalDistanceField();
+        if (field != null) {
+            return field.getDistance(cell);
+        }
+        return goalIndex.getNearestDistance(grid.col(cell), grid.row(cell));
     }
     
     /**
@@ -167,6 +426,16 @@ public class MazeProblem {
     	return Math.abs(state.col - KEY_STATE.col) + Math.abs(state.row - KEY_STATE.row);
     }
     
+    /**
+     * Returns the block distance from the given cell to the Key.
+     * 
+     * @param cell A flat cell index
+     * @return Integer block distance to the Key.
+     */
+    public int getKeyDistance (int cell) {
+        return Math.abs(grid.col(cell) - KEY_STATE.col) + Math.abs(grid.row(cell) - KEY_STATE.row);
+    }
+    
     
     /**
      * Returns a map of the states that can be reached from the given input
@@ -180,28 +449,33 @@ public class MazeProblem {
      */
     public Map<String, MazeState> getTransitions (MazeState state) {
         // Store transitions as a Map between actions ("U", "D", ...) and
-        // the MazeStates that they result in from state
+        // the MazeStates that they result in from state; this is only a
+        // convenience wrapper around getNeighbors, which search code should
+        // prefer since it allocates nothing
         Map<String, MazeState> result = new HashMap<>();
-        
-        // For each of the possible directions (stored in TRANS_MAP), test
-        // to see if it is a valid transition
-        for (Map.Entry<String, MazeState> action : TRANS_MAP.entrySet()) {
-            MazeState actionMod = action.getValue(),
-                      newState  = new MazeState(state.col, state.row);
-            newState.add(actionMod);
-            
-            // If the given state *is* a valid transition (i.e., within
-            // map bounds and no wall at the position)...
-            if (newState.row >= 0 && newState.row < rows &&
-                newState.col >= 0 && newState.col < cols &&
-                maze[newState.row].charAt(newState.col) != 'X') {
-                // ...then add it to the result!
-                result.put(action.getKey(), newState);
+        int[] neighbors = new int[4];
+        getNeighbors(toCell(state), neighbors);
+        for (int move = MazeGrid.UP; move <= MazeGrid.RIGHT; move++) {
+            if (neighbors[move] >= 0) {
+                result.put(MazeGrid.action(move), toState(neighbors[move]));
             }
         }
         return result;
     }
     
+    /**
+     * Allocation-free counterpart to getTransitions: writes the cell reached by
+     * each move code (MazeGrid.UP, DOWN, LEFT, RIGHT) into neighbors, or -1 if
+     * the move is blocked.
+     * 
+     * @param cell A flat cell index from which actions can be taken
+     * @param neighbors Caller-owned buffer of length at least 4
+     * @return The number of unblocked moves
+     */
+    public int getNeighbors (int cell, int[] neighbors) {
+        return grid.getNeighbors(cell, neighbors);
+    }
+    
     
     /**
      * Returns the cost associated with moving into a state.
@@ -210,14 +484,17 @@ public class MazeProblem {
      * @return Integer of total cost
      */
     public int getCost (MazeState state) {
-        switch (maze[state.row].charAt(state.col)) {
-        case 'M':
-            return 3;
-        case 'X':
-        	return 0; 
-        default:
-            return 1;
-        }
+        return grid.getCost(toCell(state));
+    }
+    
+    /**
+     * Returns the cost associated with moving into a cell.
+     * 
+     * @param cell A flat cell index
+     * @return Integer of total cost
+     */
+    public int getCost (int cell) {
+        return grid.getCost(cell);
     }
     
     /**
@@ -231,10 +508,27 @@ public class MazeProblem {
      * cost will be an integer denoting the cost of the given solution to test optimality
      */
     public int[] testSolution (ArrayList<String> possibleSoln) {
+        return testSolution(possibleSoln, false);
+    }
+    
+    /**
+     * Given a possibleSoln, tests to ensure that it is indeed a solution to this MazeProblem,
+     * as well as returning the cost, where a solution must enter either any Key
+     * or, for mazes whose keys must all be collected, every Key.
+     * 
+     * @param possibleSoln A possible solution to test, which is a list of actions of the format:
+     * ["U", "D", "D", "L", ...]
+     * @param allKeys Whether every Key must be entered rather than any one
+     * @return A 2-element array of ints of the format [isSoln, cost] where:
+     * isSoln will be 0 if it is not a solution, and 1 if it is
+     * cost will be an integer denoting the cost of the given solution to test optimality
+     */
+    public int[] testSolution (ArrayList<String> possibleSoln, boolean allKeys) {
         // Update the "moving state" that begins at the start and is modified by the transitions
         MazeState movingState = new MazeState(INITIAL_STATE.col, INITIAL_STATE.row);
         int cost = 0;
-        boolean hasKey = false;
+        boolean[] collected = new boolean[keyCells.length];
+        int keysCollected = 0;
         int[] result = {0, -1};
         
         // For each action, modify the movingState, and then check that we have landed in
@@ -242,14 +536,21 @@ public class MazeProblem {
         for (String action : possibleSoln) {
             MazeState actionMod = TRANS_MAP.get(action);
             movingState.add(actionMod);
-            switch (maze[movingState.row].charAt(movingState.col)) {
-            case 'X':
+            if (!grid.inBounds(movingState.col, movingState.row)) {
+                return result;
+            }
+            int cell = toCell(movingState);
+            if (grid.isWall(cell)) {
                 return result;
-            case 'K':
-                hasKey = true; break;
             }
-            cost += getCost(movingState);
+            int key = Arrays.binarySearch(keyCells, cell);
+            if (key >= 0 && !collected[key]) {
+                collected[key] = true;
+                keysCollected++;
+            }
+            cost += grid.getCost(cell);
         }
+        boolean hasKey = allKeys ? keysCollected == keyCells.length : keysCollected > 0;
         result[0] = isGoal(movingState) && hasKey ? 1 : 0;
         result[1] = cost;
         return result;
@@ -39,7 +39,9 @@ public class MazeState {
     
     @Override
     public int hashCode () {
-        return row * col;
+        // Distinct for every state of a grid under 65536 columns wide, unlike row * col,
+        // which sends all of row 0 and column 0 to 0
+        return (row << 16) ^ col;
     }
     
     public String toString () {
@@ -0,0 +1,324 @@
+package pathfinder.informed;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * A* for mazes with several keys, all of which must be collected, in any order,
+ * before reaching a goal. The search runs over the product space of (cell,
+ * collected-keys bitmask), with each state packed into one long as
+ * (mask << 32 | cell). Since only a fraction of that space is ever reached,
+ * states are numbered as they are first generated, through an open-addressing
+ * table, and per-state data is kept in arrays indexed by that number rather
+ * than in arrays over the whole product space.
+ * <p>
+ * The heuristic for a cell with keys R still to collect is the block distance to
+ * the nearest key in R, plus the weight of a minimum spanning tree over R by block
+ * distance, plus the least distance from a key in R to its nearest Goal. Any
+ * solution walks to some key in R, then along a path through all of R, which
+ * weighs at least as much as the tree, and then from its last key to a goal, so
+ * the heuristic is admissible; it is also consistent, so no state is expanded twice.
+ */
+public class MultiKeyPathfinder {
+
+    // Fields
+    // -----------------------------------------------------------------------------
+    public static final int MAX_KEYS = 20;
+    private static final int NONE = -1, COLLECTED = 4, UNREACHABLE = DistanceField.UNREACHABLE;
+    private final MazeProblem problem;
+    private final MazeGrid grid;
+    private final int[] keyCells, keyGoalCosts, treeWeights;
+    private final int allKeys;
+    private final StateTable states = new StateTable();
+    private long[] open = new long[64];
+    private int openSize;
+
+
+    // Constructor
+    // -----------------------------------------------------------------------------
+
+    /**
+     * Constructs a new MultiKeyPathfinder for the given problem.
+     *
+     * @param problem A MazeProblem that specifies the maze, actions, transitions.
+     */
+    private MultiKeyPathfinder (MazeProblem problem) {
+        this.problem = problem;
+        this.grid = problem.getGrid();
+        this.keyCells = problem.getKeyCells();
+        this.allKeys = (1 << keyCells.length) - 1;
+        this.keyGoalCosts = new int[keyCells.length];
+        for (int key = 0; key < keyCells.length; key++) {
+            keyGoalCosts[key] = problem.getGoalDistance(keyCells[key]);
+        }
+        this.treeWeights = new int[1 << keyCells.length];
+        Arrays.fill(treeWeights, NONE);
+    }
+
+
+    // Methods
+    // -----------------------------------------------------------------------------
+
+    /**
+     * Given a MazeProblem, returns the cheapest path from its initial state that
+     * enters every Key cell ('K') of the maze, in any order, and ends on a Goal.
+     *
+     * @param problem A MazeProblem that specifies the maze, actions, transitions.
+     * @return An ArrayList of Strings representing actions that lead from the initial to
+     * the goal state, of the format: ["R", "R", "L", ...], or null if there is none
+     * @throws IllegalArgumentException If the maze has more than MAX_KEYS keys
+     */
+    public static ArrayList<String> solve (MazeProblem problem) {
+        if (problem.getKeyCells().length > MAX_KEYS) {
+            throw new IllegalArgumentException("At most " + MAX_KEYS + " keys are supported");
+        }
+        return new MultiKeyPathfinder(problem).search();
+    }
+
+    private ArrayList<String> search () {
+        int[] neighbors = new int[4];
+        int start = problem.INITIAL_CELL, startHeuristic = getHeuristic(start, 0);
+        if (startHeuristic == UNREACHABLE) {
+            return null;
+        }
+        int startSlot = states.add(start, 0);
+        states.pastCosts[startSlot] = 0;
+        states.links[startSlot] = NONE;
+        push(startHeuristic, startSlot);
+
+        while (openSize > 0) {
+            int slot = (int) pop();
+            if (states.closed[slot]) {
+                continue; // Stale: the state was expanded with a cheaper cost
+            }
+            states.closed[slot] = true;
+            int cell = states.cellOf(slot), mask = states.maskOf(slot), pastCost = states.pastCosts[slot];
+            if (mask == allKeys && problem.isGoal(cell)) {
+                return getPath(slot, startSlot);
+            }
+
+            grid.getNeighbors(cell, neighbors);
+            for (int move = MazeGrid.UP; move <= MazeGrid.RIGHT; move++) {
+                int next = neighbors[move];
+                if (next < 0) {
+                    continue;
+                }
+                int key = Arrays.binarySearch(keyCells, next), nextMask = mask, link = move;
+                if (key >= 0 && (mask & (1 << key)) == 0) {
+                    nextMask |= 1 << key;
+                    link |= COLLECTED;
+                }
+                int nextCost = pastCost + grid.getCost(next), nextSlot = states.find(next, nextMask);
+                if (nextSlot != NONE && (states.closed[nextSlot] || nextCost >= states.pastCosts[nextSlot])) {
+                    continue;
+                }
+                int heuristic = getHeuristic(next, nextMask);
+                if (heuristic == UNREACHABLE) {
+                    continue;
+                }
+                if (nextSlot == NONE) {
+                    nextSlot = states.add(next, nextMask);
+                }
+                states.pastCosts[nextSlot] = nextCost;
+                states.links[nextSlot] = (byte) link;
+                push(nextCost + heuristic, nextSlot);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return The admissible estimate of the cost from the given cell, with the
+     * given keys collected, to a goal through every remaining key, or
+     * UNREACHABLE if no goal can be reached
+     */
+    private int getHeuristic (int cell, int mask) {
+        int remaining = allKeys & ~mask;
+        if (remaining == 0) {
+            return problem.getGoalDistance(cell);
+        }
+        int toKey = UNREACHABLE, toGoal = UNREACHABLE;
+        for (int key = 0; key < keyCells.length; key++) {
+            if ((remaining & (1 << key)) != 0) {
+                toKey = Math.min(toKey, blockDistance(cell, keyCells[key]));
+                toGoal = Math.min(toGoal, keyGoalCosts[key]);
+            }
+        }
+        return (toGoal == UNREACHABLE) ? UNREACHABLE : toKey + getTreeWeight(remaining) + toGoal;
+    }
+
+    /**
+     * @return The weight of a minimum spanning tree, by block distance, over the
+     * keys in the given mask, computed with Prim's algorithm on first use
+     */
+    private int getTreeWeight (int mask) {
+        if (treeWeights[mask] != NONE) {
+            return treeWeights[mask];
+        }
+        int[] distances = new int[keyCells.length];
+        Arrays.fill(distances, UNREACHABLE);
+        int weight = 0, inTree = Integer.numberOfTrailingZeros(mask), outside = mask & ~(1 << inTree);
+        while (outside != 0) {
+            int nearest = NONE;
+            for (int key = 0; key < keyCells.length; key++) {
+                if ((outside & (1 << key)) == 0) {
+                    continue;
+                }
+                distances[key] = Math.min(distances[key], blockDistance(keyCells[inTree], keyCells[key]));
+                if (nearest == NONE || distances[key] < distances[nearest]) {
+                    nearest = key;
+                }
+            }
+            weight += distances[nearest];
+            inTree = nearest;
+            outside &= ~(1 << nearest);
+        }
+        treeWeights[mask] = weight;
+        return weight;
+    }
+
+    private int blockDistance (int from, int to) {
+        return Math.abs(grid.col(from) - grid.col(to)) + Math.abs(grid.row(from) - grid.row(to));
+    }
+
+    /**
+     * @return The moves leading from the start state to the given one, found by
+     * following each state's recorded move back to its parent
+     */
+    private ArrayList<String> getPath (int slot, int startSlot) {
+        ArrayList<String> path = new ArrayList<>();
+        while (slot != startSlot) {
+            int cell = states.cellOf(slot), mask = states.maskOf(slot), link = states.links[slot];
+            if ((link & COLLECTED) != 0) {
+                mask &= ~(1 << Arrays.binarySearch(keyCells, cell));
+            }
+            path.add(MazeGrid.action(link & 3));
+            slot = states.find(grid.adjacent(cell, MazeGrid.reverse(link & 3)), mask); // The start may be a wall
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    // Binary min-heap of (priority << 32 | slot) entries, with lazy deletion
+    // of entries made stale by a cheaper path
+
+    private void push (int priority, int slot) {
+        long entry = ((long) priority << 32) | slot;
+        if (openSize == open.length) {
+            open = Arrays.copyOf(open, 2 * openSize);
+        }
+        int i = openSize++;
+        while (i > 0 && open[(i - 1) >>> 1] > entry) {
+            open[i] = open[(i - 1) >>> 1];
+            i = (i - 1) >>> 1;
+        }
+        open[i] = entry;
+    }
+
+    private long pop () {
+        long top = open[0], last = open[--openSize];
+        int i = 0;
+        while (2 * i + 1 < openSize) {
+            int child = 2 * i + 1;
+            if (child + 1 < openSize && open[child + 1] < open[child]) {
+                child++;
+            }
+            if (open[child] >= last) {
+                break;
+            }
+            open[i] = open[child];
+            i = child;
+        }
+        open[i] = last;
+        return top;
+    }
+
+    /**
+     * The states generated so far, each numbered by a slot in the order it was
+     * first generated, with an open-addressing table from packed state to slot.
+     */
+    private static class StateTable {
+
+        long[] states = new long[256];
+        int[] pastCosts = new int[256];
+        byte[] links = new byte[256];
+        boolean[] closed = new boolean[256];
+        private int[] table = new int[512];
+        private int size;
+
+        StateTable () {
+            Arrays.fill(table, NONE);
+        }
+
+        int cellOf (int slot) {
+            return (int) states[slot];
+        }
+
+        int maskOf (int slot) {
+            return (int) (states[slot] >>> 32);
+        }
+
+        /**
+         * @return The slot of the given state, or NONE if it was never generated
+         */
+        int find (int cell, int mask) {
+            long state = pack(cell, mask);
+            for (int i = hash(state, table.length); ; i = (i + 1) & (table.length - 1)) {
+                int slot = table[i];
+                if (slot == NONE || states[slot] == state) {
+                    return slot;
+                }
+            }
+        }
+
+        /**
+         * [Mutator] Numbers a new state, which must not have been generated before.
+         *
+         * @return The new state's slot
+         */
+        int add (int cell, int mask) {
+            if (size == states.length) {
+                int capacity = 2 * size;
+                states = Arrays.copyOf(states, capacity);
+                pastCosts = Arrays.copyOf(pastCosts, capacity);
+                links = Arrays.copyOf(links, capacity);
+                closed = Arrays.copyOf(closed, capacity);
+            }
+            if (2 * (size + 1) > table.length) {
+                rehash(2 * table.length);
+            }
+            long state = pack(cell, mask);
+            states[size] = state;
+            insert(state, size);
+            return size++;
+        }
+
+        private void insert (long state, int slot) {
+            int i = hash(state, table.length);
+            while (table[i] != NONE) {
+                i = (i + 1) & (table.length - 1);
+            }
+            table[i] = slot;
+        }
+
+        private void rehash (int capacity) {
+            table = new int[capacity];
+            Arrays.fill(table, NONE);
+            for (int slot = 0; slot < size; slot++) {
+                insert(states[slot], slot);
+            }
+        }
+
+        private static long pack (int cell, int mask) {
+            return ((long) mask << 32) | cell;
+        }
+
+        private static int hash (long state, int capacity) {
+            long h = state * 0x9E3779B97F4A7C15L;
+            return (int) (h >>> 32) & (capacity - 1);
+        }
+
+    }
+
+}
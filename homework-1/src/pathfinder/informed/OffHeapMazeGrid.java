@@ -0,0 +1,74 @@
+package pathfinder.informed;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * MazeGrid whose packed cell codes live outside the garbage-collected heap,
+ * either in a direct ByteBuffer or in a memory-mapped file. The grid is then
+ * neither scanned nor moved by the collector, so GC pauses do not grow with the
+ * size of the map, and searches read it in place through the usual MazeGrid
+ * methods without any copying.
+ */
+public class OffHeapMazeGrid extends MazeGrid {
+
+    // Fields
+    // -----------------------------------------------------------------------------
+    private final LongBuffer words;
+
+
+    // Constructors
+    // -----------------------------------------------------------------------------
+
+    /**
+     * Constructs a new OffHeapMazeGrid backed by a direct ByteBuffer in which every
+     * cell is OPEN.
+     *
+     * @param rows Number of rows in the maze
+     * @param cols Number of columns in the maze
+     */
+    OffHeapMazeGrid (int rows, int cols) {
+        super(rows, cols, false);
+        words = ByteBuffer.allocateDirect(getWordCount() * Long.BYTES)
+                .order(ByteOrder.nativeOrder()).asLongBuffer();
+    }
+
+    /**
+     * Constructs a new OffHeapMazeGrid backed by a read-write mapping of the given
+     * file, which is created or extended to fit the grid; the operating system pages
+     * the grid in and out as it is searched.
+     *
+     * @param rows Number of rows in the maze
+     * @param cols Number of columns in the maze
+     * @param backingFile Path of the file to map
+     * @throws IOException If the file cannot be created or mapped
+     */
+    OffHeapMazeGrid (int rows, int cols, Path backingFile) throws IOException {
+        super(rows, cols, false);
+        try (FileChannel channel = FileChannel.open(backingFile, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            words = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) getWordCount() * Long.BYTES)
+                    .order(ByteOrder.nativeOrder()).asLongBuffer();
+        }
+    }
+
+
+    // Methods
+    // -----------------------------------------------------------------------------
+
+    @Override
+    protected long getWord (int index) {
+        return words.get(index);
+    }
+
+    @Override
+    protected void setWord (int index, long word) {
+        words.put(index, word);
+    }
+
+}
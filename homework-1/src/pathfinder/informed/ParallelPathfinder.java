@@ -0,0 +1,427 @@
+package pathfinder.informed;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hash-Distributed A* (HDA*): a single search spread over several worker threads.
+ * Every cell is owned by the worker its hash maps to, and only that worker ever
+ * reads or writes the cell's cost and parent move, or keeps it in its open list.
+ * Expanding a cell sends each successor, as a packed (cost, move, cell) long, to
+ * its owner through a lock-free queue; messages are batched per destination to
+ * keep queue traffic low.
+ * <p>
+ * A goal found by a worker only becomes the incumbent solution; the search ends
+ * once every worker is idle (its open list is empty or holds nothing cheaper than
+ * the incumbent) and no message is in flight. Since the heuristic is admissible,
+ * the incumbent is then optimal.
+ * <p>
+ * Each worker publishes the smallest priority in its open list, and senders lower
+ * a bound on the priorities waiting in each recipient's inbox; a worker expands
+ * only within a small slack of the smallest of these, which keeps the expansion
+ * order close to that of sequential A* and so avoids re-expanding cells.
+ */
+public class ParallelPathfinder {
+
+    // Fields
+    // -----------------------------------------------------------------------------
+    private static final int UNREACHED = Integer.MAX_VALUE, EXPANSIONS_PER_ROUND = 64,
+                             BATCH_SIZE = 256, IDLE_SPINS = 64,
+                             EXPANSION_SLACK = 2;
+    private static final long IDLE_PARK_NANOS = 20_000;
+    private final MazeProblem problem;
+    private final MazeGrid grid;
+    private final Worker[] workers;
+    private final int[] pastCosts;
+    private final byte[] moves;
+
+    // Shared state of the current leg: the incumbent (cost << 32 | cell), the
+    // number of idle workers, the number of messages sent but not yet absorbed,
+    // and a counter bumped whenever an idle worker becomes active again
+    private final AtomicLong incumbent = new AtomicLong(), inFlight = new AtomicLong(),
+                             activations = new AtomicLong();
+    private final AtomicInteger idleWorkers = new AtomicInteger();
+    private final AtomicIntegerArray frontierMins, inboxMins;
+    private volatile boolean done, foundKey;
+
+
+    // Constructor
+    // -----------------------------------------------------------------------------
+
+    /**
+     * Constructs a new ParallelPathfinder over the given problem with the given
+     * number of worker threads.
+     *
+     * @param problem A MazeProblem that specifies the maze, actions, transitions.
+     * @param threads Number of worker threads, at least 1
+     */
+    private ParallelPathfinder (MazeProblem problem, int threads) {
+        this.problem = problem;
+        this.grid = problem.getGrid();
+        this.pastCosts = new int[grid.size()];
+        this.moves = new byte[grid.size()];
+        this.workers = new Worker[threads];
+        this.frontierMins = new AtomicIntegerArray(threads);
+        this.inboxMins = new AtomicIntegerArray(threads);
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Worker(i);
+        }
+    }
+
+
+    // Methods
+    // -----------------------------------------------------------------------------
+
+    /**
+     * Given a MazeProblem, returns an optimal solution as in Pathfinder.solve, with
+     * each leg of the search spread across the given number of threads.
+     *
+     * @param problem A MazeProblem that specifies the maze, actions, transitions.
+     * @param threads Number of worker threads, at least 1
+     * @return An ArrayList of Strings representing actions that lead from the initial to
+     * the goal state, of the format: ["R", "R", "L", ...], or null if there is none
+     * @throws InterruptedException If interrupted while waiting for the workers
+     */
+    public static ArrayList<String> solve (MazeProblem problem, int threads) throws InterruptedException {
+        if (problem.KEY_STATE == null) {
+            return null;
+        }
+        ParallelPathfinder search = new ParallelPathfinder(problem, Math.max(1, threads));
+        ArrayList<String> pathSoln = search.searchLeg(problem.INITIAL_CELL, false);
+        if (pathSoln == null) {
+            return null;
+        }
+        ArrayList<String> keyToGoal = search.searchLeg(problem.KEY_CELL, true);
+        if (keyToGoal == null) {
+            return null;
+        }
+        pathSoln.addAll(keyToGoal);
+        return pathSoln;
+    }
+
+    /**
+     * Runs one leg of the search on all workers and waits for it to terminate.
+     */
+    private ArrayList<String> searchLeg (int start, boolean foundKey) throws InterruptedException {
+        if (problem.getDistance(start, foundKey) == DistanceField.UNREACHABLE) {
+            return null;
+        }
+        this.foundKey = foundKey;
+        done = false;
+        incumbent.set(Long.MAX_VALUE);
+        inFlight.set(0);
+        idleWorkers.set(0);
+        Arrays.fill(pastCosts, UNREACHED);
+        for (Worker worker : workers) {
+            worker.reset();
+            frontierMins.set(worker.id, UNREACHED);
+            inboxMins.set(worker.id, UNREACHED);
+        }
+        workers[owner(start)].relax(pack(0, 0, start));
+
+        Thread[] threads = new Thread[workers.length];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(workers[i], "hda-worker-" + i);
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        long best = incumbent.get();
+        return (best == Long.MAX_VALUE) ? null : getPath(start, (int) best);
+    }
+
+    /**
+     * @return Index of the worker that owns the given cell
+     */
+    private int owner (int cell) {
+        int hash = cell * 0x9E3779B9;
+        return ((hash ^ (hash >>> 16)) & Integer.MAX_VALUE) % workers.length;
+    }
+
+    private static long pack (int pastCost, int move, int cell) {
+        return ((long) pastCost << 33) | ((long) move << 31) | cell;
+    }
+
+    /**
+     * @return The smallest priority published for any worker's open list or inbox
+     */
+    private int globalMin () {
+        int min = UNREACHED;
+        for (int i = 0; i < workers.length; i++) {
+            min = Math.min(min, Math.min(frontierMins.get(i), inboxMins.get(i)));
+        }
+        return min;
+    }
+
+    /**
+     * [Mutator] Lowers the incumbent solution to the given goal, if it is cheaper.
+     */
+    private void offerSolution (int pastCost, int cell) {
+        long candidate = ((long) pastCost << 32) | cell;
+        long current;
+        while (candidate < (current = incumbent.get())) {
+            if (incumbent.compareAndSet(current, candidate)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * @return The cost of the incumbent solution, or UNREACHED if there is none
+     */
+    private int incumbentCost () {
+        long best = incumbent.get();
+        return (best == Long.MAX_VALUE) ? UNREACHED : (int) (best >>> 32);
+    }
+
+    /**
+     * Walks the parent moves, which all workers have finished writing, back from
+     * the goal to the start.
+     */
+    private ArrayList<String> getPath (int start, int last) {
+        ArrayList<String> result = new ArrayList<>();
+        for (int cell = last; cell != start; ) {
+            int move = moves[cell];
+            result.add(MazeGrid.action(move));
+            cell = grid.adjacent(cell, MazeGrid.reverse(move)); // The start may be a wall
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    /**
+     * A worker thread, which owns the open list of the cells hashed to it and
+     * exchanges generated cells with the other workers.
+     */
+    private class Worker implements Runnable {
+
+        private final int id;
+        private final ConcurrentLinkedQueue<long[]> inbox = new ConcurrentLinkedQueue<>();
+        private final long[][] outboxes;
+        private final int[] outboxSizes, outboxMins, neighbors = new int[4];
+        private long[] open = new long[64];
+        private int openSize;
+        private boolean idle;
+
+        Worker (int id) {
+            this.id = id;
+            this.outboxes = new long[workers.length][];
+            this.outboxSizes = new int[workers.length];
+            this.outboxMins = new int[workers.length];
+            Arrays.fill(outboxMins, UNREACHED);
+        }
+
+        void reset () {
+            inbox.clear();
+            openSize = 0;
+            idle = false;
+        }
+
+        @Override
+        public void run () {
+            int idleRounds = 0;
+            while (!done) {
+                receive();
+                if (hasWork()) {
+                    idleRounds = 0;
+                    // Expand only near the global best priority: a worker racing
+                    // ahead of the others would mostly expand cells that are later
+                    // reached more cheaply and must be expanded again
+                    frontierMins.lazySet(id, topPriority());
+                    long bound = (long) globalMin() + EXPANSION_SLACK;
+                    if (topPriority() > bound) {
+                        Thread.yield();
+                        continue;
+                    }
+                    for (int i = 0; i < EXPANSIONS_PER_ROUND && hasWork() && topPriority() <= bound; i++) {
+                        expand(pop());
+                    }
+                    flush();
+                    frontierMins.lazySet(id, hasWork() ? topPriority() : UNREACHED);
+                    continue;
+                }
+                frontierMins.lazySet(id, UNREACHED);
+                flush();
+                if (!idle) {
+                    idle = true;
+                    idleWorkers.incrementAndGet();
+                }
+                if (inbox.isEmpty()) {
+                    // Everyone idle with nothing in flight means termination, as
+                    // long as no worker was reactivated between the reads
+                    long before = activations.get();
+                    if (idleWorkers.get() == workers.length && inFlight.get() == 0
+                            && activations.get() == before) {
+                        done = true;
+                    } else if (++idleRounds < IDLE_SPINS) {
+                        Thread.yield();
+                    } else {
+                        // Back off so idle workers do not starve busy ones of cores
+                        LockSupport.parkNanos(IDLE_PARK_NANOS);
+                    }
+                }
+            }
+        }
+
+        /**
+         * @return Whether the open list holds a cell that could still beat the incumbent
+         */
+        private boolean hasWork () {
+            return openSize > 0 && topPriority() < incumbentCost();
+        }
+
+        private int topPriority () {
+            return (int) (open[0] >>> 32);
+        }
+
+        /**
+         * Absorbs every batch of messages waiting in the inbox; an idle worker first
+         * marks itself active, so that in-flight messages always have an active or
+         * not-yet-idle recipient.
+         */
+        private void receive () {
+            inboxMins.set(id, UNREACHED);
+            long[] batch;
+            while ((batch = inbox.poll()) != null) {
+                if (idle) {
+                    activations.incrementAndGet();
+                    idleWorkers.decrementAndGet();
+                    idle = false;
+                }
+                int count = (int) batch[0];
+                for (int i = 1; i <= count; i++) {
+                    relax(batch[i]);
+                }
+                inFlight.addAndGet(-count);
+            }
+        }
+
+        /**
+         * Records a message (cost, move, cell) for a cell this worker owns, if it
+         * is the cheapest way to the cell seen so far.
+         */
+        void relax (long message) {
+            int cell = (int) (message & Integer.MAX_VALUE),
+                move = (int) (message >>> 31) & 3,
+                pastCost = (int) (message >>> 33);
+            if (pastCost >= pastCosts[cell]) {
+                return;
+            }
+            int futureCost = problem.getDistance(cell, foundKey);
+            if (futureCost == DistanceField.UNREACHABLE || pastCost + futureCost >= incumbentCost()) {
+                return;
+            }
+            pastCosts[cell] = pastCost;
+            moves[cell] = (byte) move;
+            if (problem.isObjective(cell, foundKey)) {
+                offerSolution(pastCost, cell);
+            } else {
+                push(((long) (pastCost + futureCost) << 32) | cell);
+            }
+        }
+
+        /**
+         * Generates the successors of an open cell, sending each to its owner.
+         */
+        private void expand (long entry) {
+            int cell = (int) entry, priority = (int) (entry >>> 32);
+            int pastCost = pastCosts[cell];
+            if (pastCost + problem.getDistance(cell, foundKey) != priority) {
+                return; // Stale: the cell has since been reached more cheaply
+            }
+            grid.getNeighbors(cell, neighbors);
+            for (int move = MazeGrid.UP; move <= MazeGrid.RIGHT; move++) {
+                int next = neighbors[move];
+                if (next >= 0) {
+                    send(owner(next), pack(pastCost + grid.getCost(next), move, next), priority);
+                }
+            }
+        }
+
+        /**
+         * Delivers a message to the owner of its cell, batching it if that is another
+         * worker; priority, that of the cell being expanded, is a lower bound on the
+         * priority of the message's cell since the heuristic is consistent.
+         */
+        private void send (int destination, long message, int priority) {
+            if (destination == id) {
+                relax(message);
+                return;
+            }
+            outboxMins[destination] = Math.min(outboxMins[destination], priority);
+            if (outboxes[destination] == null) {
+                outboxes[destination] = new long[BATCH_SIZE + 1];
+            }
+            outboxes[destination][++outboxSizes[destination]] = message;
+            if (outboxSizes[destination] == BATCH_SIZE) {
+                flush(destination);
+            }
+        }
+
+        private void flush () {
+            for (int destination = 0; destination < outboxSizes.length; destination++) {
+                if (outboxSizes[destination] > 0) {
+                    flush(destination);
+                }
+            }
+        }
+
+        private void flush (int destination) {
+            long[] batch = outboxes[destination];
+            batch[0] = outboxSizes[destination];
+            inFlight.addAndGet(outboxSizes[destination]);
+            int min;
+            while (outboxMins[destination] < (min = inboxMins.get(destination))
+                    && !inboxMins.compareAndSet(destination, min, outboxMins[destination])) {
+                // Retry until the destination's inbox bound is at most this batch's
+            }
+            outboxMins[destination] = UNREACHED;
+            workers[destination].inbox.add(batch);
+            outboxes[destination] = null;
+            outboxSizes[destination] = 0;
+        }
+
+        // Binary min-heap of (priority << 32 | cell) entries, with lazy deletion
+        // of entries made stale by a cheaper path
+
+        private void push (long entry) {
+            if (openSize == open.length) {
+                open = Arrays.copyOf(open, 2 * openSize);
+            }
+            int i = openSize++;
+            while (i > 0 && open[(i - 1) >>> 1] > entry) {
+                open[i] = open[(i - 1) >>> 1];
+                i = (i - 1) >>> 1;
+            }
+            open[i] = entry;
+        }
+
+        private long pop () {
+            long top = open[0], last = open[--openSize];
+            int i = 0;
+            while (2 * i + 1 < openSize) {
+                int child = 2 * i + 1;
+                if (child + 1 < openSize && open[child + 1] < open[child]) {
+                    child++;
+                }
+                if (open[child] >= last) {
+                    break;
+                }
+                open[i] = open[child];
+                i = child;
+            }
+            open[i] = last;
+            return top;
+        }
+
+    }
+
+}
@@ -0,0 +1,320 @@
+package pathfinder.informed;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded, least-recently-used cache of solutions in front of Pathfinder, for
+ * workloads that repeat the same (start, key, goals) queries against one maze.
+ * <p>
+ * Entries are valid for the grid version they were solved at. Terrain edits made
+ * through setCell keep the cache in sync selectively: an edit that makes a cell
+ * more expensive (or a wall) only invalidates entries whose paths cross it, and
+ * one that makes it cheaper only those, plus the entries that a path through it
+ * could beat, judged by block distance. Edits made to the grid any other way
+ * are detected by its version and clear the whole cache.
+ */
+public class PathCache {
+
+    // Fields
+    // -----------------------------------------------------------------------------
+    private static final int UNSOLVABLE = DistanceField.UNREACHABLE;
+    private final MazeGrid grid;
+    private final LinkedHashMap<Key, CachedPath> entries;
+    private long syncedVersion, hits, misses, evictions, invalidations;
+
+
+    // Constructor
+    // -----------------------------------------------------------------------------
+
+    /**
+     * Constructs a new, empty PathCache for queries against the given maze.
+     *
+     * @param maze The MazeProblem whose grid every query searches; its own initial,
+     * key, and goal states are ignored
+     * @param capacity The most entries to keep, at least 1
+     */
+    public PathCache (MazeProblem maze, int capacity) {
+        this.grid = maze.getGrid();
+        this.syncedVersion = grid.getVersion();
+        this.entries = new LinkedHashMap<Key, CachedPath>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry (Map.Entry<Key, CachedPath> eldest) {
+                if (size() > capacity) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+
+    // Methods
+    // -----------------------------------------------------------------------------
+
+    /**
+     * Returns the cached solution of the given query, solving and caching it with
+     * Pathfinder if there is none.
+     *
+     * @param start The state to start from
+     * @param key The key state that must be collected
+     * @param goals The goal states, any of which ends the path
+     * @return An ArrayList of Strings representing actions that lead from start to a
+     * goal via the key, of the format: ["R", "R", "L", ...], or null if there is none
+     * @throws IllegalArgumentException If start is null, or a state lies outside the grid
+     */
+    public ArrayList<String> solve (MazeState start, MazeState key, Collection<MazeState> goals) {
+        MazeProblem problem = new MazeProblem(grid, start, key, goals);
+        Key query = new Key(problem.INITIAL_CELL, problem.KEY_CELL, problem.getGoalCells());
+        long version;
+        synchronized (this) {
+            version = sync();
+            CachedPath entry = entries.get(query);
+            if (entry != null) {
+                hits++;
+                return entry.getPath();
+            }
+            misses++;
+        }
+
+        ArrayList<String> path = Pathfinder.solve(problem);
+        CachedPath entry = new CachedPath(query, path, (path == null) ? UNSOLVABLE : problem.testSolution(path)[1]);
+        synchronized (this) {
+            // Only cache what was solved against the terrain that is still current
+            if (sync() == version) {
+                entries.put(query, entry);
+            }
+        }
+        return path;
+    }
+
+    /**
+     * [Mutator] Changes the terrain of a cell, as MazeGrid.setTerrain, and
+     * invalidates only the entries that the change could affect.
+     *
+     * @param state The MazeState (col, row) of the cell to change
+     * @param c The new terrain, one of '.', 'M', 'X'
+     */
+    public synchronized void setCell (MazeState state, char c) {
+        long before = sync();
+        int cell = grid.index(state.col, state.row);
+        int oldCost = costOf(grid.setTerrain(cell, c)), newCost = costOf(MazeGrid.encode(c));
+        if (grid.getVersion() != before + 1) {
+            sync(); // Another edit interleaved, so nothing can be kept
+            return;
+        }
+        syncedVersion = before + 1;
+        Iterator<CachedPath> it = entries.values().iterator();
+        while (it.hasNext()) {
+            CachedPath entry = it.next();
+            boolean stale = (newCost != oldCost) && entry.crosses(cell)
+                    || (newCost < oldCost) && entry.cost > entry.getLowerBoundThrough(cell);
+            if (stale) {
+                it.remove();
+                invalidations++;
+            }
+        }
+    }
+
+    /**
+     * Drops every entry if the grid changed behind this cache's back.
+     *
+     * @return The grid version the cache is now in sync with
+     */
+    private long sync () {
+        long version = grid.getVersion();
+        if (version != syncedVersion) {
+            invalidations += entries.size();
+            entries.clear();
+            syncedVersion = version;
+        }
+        return version;
+    }
+
+    /**
+     * @return The cost of entering a cell with the given code, walls being infinite
+     */
+    private static int costOf (int code) {
+        return (code == MazeGrid.WALL) ? UNSOLVABLE : (code == MazeGrid.MUD) ? 3 : 1;
+    }
+
+    private int blockDistance (int from, int to) {
+        return Math.abs(grid.col(from) - grid.col(to)) + Math.abs(grid.row(from) - grid.row(to));
+    }
+
+    public synchronized int size () {
+        return entries.size();
+    }
+
+    public synchronized long getHitCount () {
+        return hits;
+    }
+
+    public synchronized long getMissCount () {
+        return misses;
+    }
+
+    /**
+     * @return The fraction of lookups answered from the cache, or 0 if there were none
+     */
+    public synchronized double getHitRate () {
+        return (hits + misses == 0) ? 0 : (double) hits / (hits + misses);
+    }
+
+    /**
+     * @return The number of entries dropped to stay within capacity
+     */
+    public synchronized long getEvictionCount () {
+        return evictions;
+    }
+
+    /**
+     * @return The number of entries dropped because the terrain changed
+     */
+    public synchronized long getInvalidationCount () {
+        return invalidations;
+    }
+
+    /**
+     * The cells a query is keyed by: its start, key, and sorted goals.
+     */
+    private static class Key {
+
+        final int startCell, keyCell;
+        final int[] goalCells;
+
+        Key (int startCell, int keyCell, int[] goalCells) {
+            this.startCell = startCell;
+            this.keyCell = keyCell;
+            this.goalCells = goalCells;
+        }
+
+        @Override
+        public boolean equals (Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key that = (Key) other;
+            return startCell == that.startCell && keyCell == that.keyCell
+                    && Arrays.equals(goalCells, that.goalCells);
+        }
+
+        @Override
+        public int hashCode () {
+            return (startCell * 31 + keyCell) * 31 + Arrays.hashCode(goalCells);
+        }
+
+    }
+
+    /**
+     * A cached solution, stored as move codes along with the bounding box of the
+     * cells it visits.
+     */
+    private class CachedPath {
+
+        final Key query;
+        final byte[] moves;
+        final int cost;
+        int minCol, maxCol, minRow, maxRow;
+
+        CachedPath (Key query, ArrayList<String> path, int cost) {
+            this.query = query;
+            this.cost = cost;
+            this.moves = new byte[(path == null) ? 0 : path.size()];
+            for (int i = 0; i < moves.length; i++) {
+                moves[i] = (byte) MazeGrid.move(path.get(i));
+            }
+            minCol = maxCol = grid.col(query.startCell);
+            minRow = maxRow = grid.row(query.startCell);
+            for (int cell : cells()) {
+                minCol = Math.min(minCol, grid.col(cell));
+                maxCol = Math.max(maxCol, grid.col(cell));
+                minRow = Math.min(minRow, grid.row(cell));
+                maxRow = Math.max(maxRow, grid.row(cell));
+            }
+        }
+
+        /**
+         * @return A fresh copy of the cached path, or null if the query is unsolvable
+         */
+        ArrayList<String> getPath () {
+            if (cost == UNSOLVABLE) {
+                return null;
+            }
+            ArrayList<String> path = new ArrayList<>(moves.length);
+            for (byte move : moves) {
+                path.add(MazeGrid.action(move));
+            }
+            return path;
+        }
+
+        /**
+         * @return The cells entered by the path, in order; moves are replayed by
+         * arithmetic since the terrain they cross may have become walls
+         */
+        int[] cells () {
+            int[] cells = new int[moves.length];
+            int cell = query.startCell;
+            for (int i = 0; i < moves.length; i++) {
+                switch (moves[i]) {
+                case MazeGrid.UP:
+                    cell -= grid.cols; break;
+                case MazeGrid.DOWN:
+                    cell += grid.cols; break;
+                case MazeGrid.LEFT:
+                    cell--; break;
+                default:
+                    cell++; break;
+                }
+                cells[i] = cell;
+            }
+            return cells;
+        }
+
+        boolean crosses (int cell) {
+            int col = grid.col(cell), row = grid.row(cell);
+            if (cost == UNSOLVABLE || col < minCol || col > maxCol || row < minRow || row > maxRow) {
+                return false;
+            }
+            if (cell == query.startCell) {
+                return true;
+            }
+            for (int visited : cells()) {
+                if (visited == cell) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * @return A lower bound on the cost of any solution to this query that
+         * enters the given cell, from block distances
+         */
+        int getLowerBoundThrough (int cell) {
+            int toGoal = UNSOLVABLE, keyToGoal = UNSOLVABLE;
+            if (query.keyCell < 0) {
+                return UNSOLVABLE;
+            }
+            for (int goal : query.goalCells) {
+                toGoal = Math.min(toGoal, blockDistance(cell, goal));
+                keyToGoal = Math.min(keyToGoal, blockDistance(query.keyCell, goal));
+            }
+            if (toGoal == UNSOLVABLE) {
+                return UNSOLVABLE;
+            }
+            int beforeKey = blockDistance(query.startCell, cell) + blockDistance(cell, query.keyCell) + keyToGoal,
+                afterKey = blockDistance(query.startCell, query.keyCell) + blockDistance(query.keyCell, cell) + toGoal;
+            return Math.min(beforeKey, afterKey);
+        }
+
+    }
+
+}
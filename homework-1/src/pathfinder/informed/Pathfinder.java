@@ -1,9 +1,8 @@
 package pathfinder.informed;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.PriorityQueue;
+
 
 /**
  * Maze Pathfinding algorithm that implements a basic, uninformed, breadth-first tree search.
@@ -12,62 +11,233 @@ import java.util.PriorityQueue;
  */
 public class Pathfinder {
 
+    /**
+     * Least fraction of WALL cells at which a maze without MUD is searched by
+     * BitParallelSearch rather than A*. Breadth-first search visits every cell
+     * closer than the objective, so it only pays off in corridor-like mazes, where
+     * block distance is a poor guide and A* expands nearly as many cells anyway.
+     */
+    static final double BIT_PARALLEL_MIN_WALLS = 0.45;
+
     /**
      * Given a MazeProblem, which specifies the actions and transitions available in the
      * search, returns a solution to the problem as a sequence of actions that leads from
-     * the initial to a goal state. The loop's first pass attempts to find the key state.
-     * It does this by first establishing a PriorityQueue for the frontier as well as a
-     * HashSet of already visited states, for memoization. The first SearchTreeNode initialized
-     * on the frontier estimates future cost using a getDistance function. If the node is
-     * the solution it returns the ArrayList containing the path. Otherwise, it creates a
-     * Map of all possible transitions and adds all transitions to the PriorityQueue in
-     * order of the least expected heuristic cost. It then repeats once at the Key state
-     * to search its way to the goal state.
+     * the initial to a goal state. The first search leg attempts to find the key state.
+     * It does this by first establishing an IndexedHeap of cells for the frontier,
+     * per-cell arrays of parents, past costs, and moves that hold the search tree, and
+     * a CellSet of already expanded (closed) cells. The starting cell pushed onto the
+     * frontier estimates future cost using a getDistance function. If the expanded cell
+     * is the objective it returns the ArrayList containing the path. Otherwise, it fills
+     * a reusable neighbor buffer with all possible transitions; a newly seen cell is
+     * pushed onto the frontier, while a cell already on the frontier that is now reached
+     * more cheaply has its parent and cost updated and its priority decreased, so each
+     * cell has at most one frontier entry and mud cells cannot lock in a costlier path.
+     * It then searches again from the Key state to find its way to the goal state.
+     * Mazes that qualify for isBitParallel are searched with BitParallelSearch instead.
      *
      * @param problem A MazeProblem that specifies the maze, actions, transitions.
      * @return An ArrayList of Strings representing actions that lead from the initial to
      * the goal state, of the format: ["R", "R", "L", ...]
      */
     public static ArrayList<String> solve (MazeProblem problem) {
+        if (problem.mayBeSolvable() && isBitParallel(problem.getGrid())) {
+            return solveBitParallel(problem);
+        }
+        return solve(problem, Frontier.Kind.BINARY_HEAP);
+    }
+
+    /**
+     * Solves the given MazeProblem as in solve(problem), but using the given kind of
+     * Frontier; BUCKET_QUEUE exploits the small integer step costs and heuristic for
+     * O(1) frontier operations, and returns a path of the same (optimal) cost. Both
+     * search with A* whatever the maze, in the calling thread's pooled SearchWorkspace,
+     * so that repeated solves allocate little beyond the returned path.
+     *
+     * @param problem A MazeProblem that specifies the maze, actions, transitions.
+     * @param frontierKind The Frontier implementation to search with.
+     * @return An ArrayList of Strings representing actions that lead from the initial to
+     * the goal state, of the format: ["R", "R", "L", ...]
+     */
+    public static ArrayList<String> solve (MazeProblem problem, Frontier.Kind frontierKind) {
+        SearchWorkspace workspace = SearchWorkspace.forCurrentThread(problem.getGrid().size(), frontierKind);
+        try {
+            return solve(problem, workspace);
+        } finally {
+            workspace.release();
+        }
+    }
+
+    /**
+     * Solves the given MazeProblem as in solve(problem), but reusing the frontier and
+     * per-cell arrays of the given SearchWorkspace instead of allocating new ones.
+     * Problems that the grid's ConnectedComponents show to be unsolvable, if they
+     * are labeled and current, are not searched at all.
+     *
+     * @param problem A MazeProblem that specifies the maze, actions, transitions.
+     * @param workspace A SearchWorkspace sized for the problem's grid, not in use
+     * by any other search.
+     * @return An ArrayList of Strings representing actions that lead from the initial to
+     * the goal state, of the format: ["R", "R", "L", ...]
+     */
+    public static ArrayList<String> solve (MazeProblem problem, SearchWorkspace workspace) {
+
+        // Rejects queries whose key or goals are walled off without searching
+        if (!problem.mayBeSolvable()) {
+            return null;
+        }
+
+        ArrayList<String> pathSoln = search(problem, problem.INITIAL_CELL, false, workspace);
+        if (pathSoln == null) {
+            return null;
+        }
+        DistanceField goalField = problem.getGoalDistanceField();
+        ArrayList<String> keyToGoal = (goalField != null) ? goalField.getPath(problem.KEY_CELL)
+                : search(problem, problem.KEY_CELL, true, workspace);
+        if (keyToGoal == null) {
+            return null;
+        }
+        pathSoln.addAll(keyToGoal);
+        return pathSoln;
+    }
 
-        if (problem.KEY_STATE == null) {
+    /**
+     * Solves the given MazeProblem as in solve(problem), searching both legs with
+     * BitParallelSearch.
+     */
+    private static ArrayList<String> solveBitParallel (MazeProblem problem) {
+        ArrayList<String> pathSoln = BitParallelSearch.search(problem, problem.INITIAL_CELL, false);
+        if (pathSoln == null) {
             return null;
         }
+        DistanceField goalField = problem.getGoalDistanceField();
+        ArrayList<String> keyToGoal = (goalField != null) ? goalField.getPath(problem.KEY_CELL)
+                : BitParallelSearch.search(problem, problem.KEY_CELL, true);
+        if (keyToGoal == null) {
+            return null;
+        }
+        pathSoln.addAll(keyToGoal);
+        return pathSoln;
+    }
+
+    /**
+     * Returns whether solve(problem) searches the given grid with BitParallelSearch:
+     * every step must cost 1 (no MUD), and at least BIT_PARALLEL_MIN_WALLS of the
+     * cells must be walls. Callers that name a Frontier kind or SearchWorkspace always
+     * get A*.
+     *
+     * @param grid The MazeGrid to be searched
+     * @return Whether or not the grid is searched breadth-first, 64 cells at a time
+     */
+    static boolean isBitParallel (MazeGrid grid) {
+        return !grid.hasMud() && grid.getWallCount() >= BIT_PARALLEL_MIN_WALLS * grid.size();
+    }
 
-        boolean foundKey = false;
+    /**
+     * Solves the given MazeProblem with a single A* over the layered state space of
+     * (cell, key held) rather than two legs, sharing one frontier and one closed set.
+     * State cell + size * layer stands for the cell without the key in layer 0 and
+     * with it in layer 1; entering any Key cell moves to layer 1. Layer 0 is guided by
+     * the block distance to a key plus that key's distance to the nearest goal (exact,
+     * if precomputeGoalDistances has been called), and layer 1 by getGoalDistance.
+     *
+     * @param problem A MazeProblem that specifies the maze, actions, transitions.
+     * @return An ArrayList of Strings representing actions that lead from the initial to
+     * the goal state, of the format: ["R", "R", "L", ...], or null if there is none
+     */
+    public static ArrayList<String> solveLayered (MazeProblem problem) {
+        return solveLayered(problem, Frontier.Kind.BINARY_HEAP);
+    }
 
-        ArrayList<String> pathSoln = new ArrayList<>();
+    /**
+     * Solves the given MazeProblem as in solveLayered(problem), but using the given
+     * kind of Frontier.
+     *
+     * @param problem A MazeProblem that specifies the maze, actions, transitions.
+     * @param frontierKind The Frontier implementation to search with.
+     * @return An ArrayList of Strings representing actions that lead from the initial to
+     * the goal state, of the format: ["R", "R", "L", ...], or null if there is none
+     */
+    public static ArrayList<String> solveLayered (MazeProblem problem, Frontier.Kind frontierKind) {
+        SearchWorkspace workspace = SearchWorkspace.forCurrentThread(2 * problem.getGrid().size(), frontierKind);
+        try {
+            return solveLayered(problem, workspace);
+        } finally {
+            workspace.release();
+        }
+    }
 
-        for (int i = 0; i < 2; i++) {
-            MazeState startingState = foundKey ? problem.KEY_STATE : problem.INITIAL_STATE;
-            PriorityQueue<SearchTreeNode> frontier = new PriorityQueue<>();
-            HashSet<MazeState> visitedStates = new HashSet<>();
+    /**
+     * Solves the given MazeProblem as in solveLayered(problem), reusing the given
+     * SearchWorkspace, which must be sized for twice the cells of the problem's grid.
+     *
+     * @param problem A MazeProblem that specifies the maze, actions, transitions.
+     * @param workspace A SearchWorkspace with capacity 2 * MazeGrid.size(), not in use
+     * by any other search.
+     * @return An ArrayList of Strings representing actions that lead from the initial to
+     * the goal state, of the format: ["R", "R", "L", ...], or null if there is none
+     * @throws IllegalArgumentException If the workspace is too small
+     */
+    public static ArrayList<String> solveLayered (MazeProblem problem, SearchWorkspace workspace) {
+        int size = problem.getGrid().size();
+        if (workspace.capacity < 2 * size) {
+            throw new IllegalArgumentException("Layered search needs a workspace of 2 * MazeGrid.size()");
+        }
+        int[] keyCells = problem.getKeyCells(), keyGoalCosts = new int[keyCells.length];
+        boolean solvable = false;
+        for (int key = 0; key < keyCells.length; key++) {
+            keyGoalCosts[key] = problem.getGoalDistance(keyCells[key]);
+            solvable |= problem.canReachGoalThrough(keyCells[key]);
+        }
+        if (!solvable) {
+            return null;
+        }
+        workspace.reset();
+        int[] neighbors = workspace.neighbors, pastCosts = workspace.pastCosts;
+        Frontier frontier = workspace.frontier;
+        CellSet closedStates = workspace.closedCells;
 
-            frontier.add(new SearchTreeNode(startingState, null, null, 0,
-                    problem.getDistance(startingState, foundKey)));
+        int start = problem.INITIAL_CELL, startCost = getLayeredDistance(problem, start, keyCells, keyGoalCosts);
+        if (startCost == DistanceField.UNREACHABLE) {
+            return null;
+        }
+        workspace.generate(start, -1, -1, 0);
+        frontier.push(start, startCost);
 
-            while (!frontier.isEmpty()) {
-                SearchTreeNode expanding = frontier.poll();
+        while (!frontier.isEmpty()) {
+            int expanding = frontier.pop();
+            closedStates.add(expanding);
+            boolean hasKey = expanding >= size;
+            int cell = hasKey ? expanding - size : expanding;
 
-                if (problem.isObjective(expanding.state, foundKey)) {
-                    pathSoln.addAll(getPath(expanding));
+            if (hasKey && problem.isGoal(cell)) {
+                return getPath(workspace, expanding);
+            }
 
-                    if (foundKey) {
-                        return pathSoln;
-                    } else {
-                        foundKey = true;
-                        break;
-                    }
+            problem.getNeighbors(cell, neighbors);
+            for (int move = MazeGrid.UP; move <= MazeGrid.RIGHT; move++) {
+                int nextCell = neighbors[move];
+                if (nextCell < 0) {
+                    continue;
                 }
-
-                Map<String, MazeState> transitions = problem.getTransitions(expanding.state);
-                for (Map.Entry<String, MazeState> transition : transitions.entrySet()) {
-                    if (visitedStates.add(transition.getValue())) {
-                        int pastCost = expanding.pastCost + problem.getCost(transition.getValue());
-                        int futureCost = problem.getDistance(transition.getValue(), foundKey);
-                        frontier.add(new SearchTreeNode(transition.getValue(),
-                                transition.getKey(), expanding, pastCost, futureCost));
+                boolean nextHasKey = hasKey || Arrays.binarySearch(keyCells, nextCell) >= 0;
+                int next = nextHasKey ? nextCell + size : nextCell;
+                if (closedStates.contains(next)) {
+                    continue;
+                }
+                int pastCost = pastCosts[expanding] + problem.getCost(nextCell);
+                if (!workspace.isGenerated(next)) {
+                    int futureCost = nextHasKey ? problem.getGoalDistance(nextCell)
+                            : getLayeredDistance(problem, nextCell, keyCells, keyGoalCosts);
+                    if (futureCost == DistanceField.UNREACHABLE) {
+                        closedStates.add(next);
+                        continue;
                     }
+                    workspace.generate(next, expanding, move, pastCost);
+                    frontier.push(next, pastCost + futureCost);
+                } else if (pastCost < pastCosts[next]) {
+                    int key = frontier.getKey(next) - (pastCosts[next] - pastCost);
+                    workspace.reparent(next, expanding, move, pastCost);
+                    frontier.decreaseKey(next, key);
                 }
             }
         }
@@ -76,61 +246,115 @@ public class Pathfinder {
     }
 
     /**
-     * Given a leaf node in the search tree (a goal), returns a solution by traversing
-     * up the search tree, collecting actions along the way, until reaching the root
+     * @return The least, over every Key, of the block distance from the given cell
+     * to the Key plus the Key's distance to its nearest goal, which is a consistent
+     * estimate of the cost of a solution from a cell in layer 0
+     */
+    private static int getLayeredDistance (MazeProblem problem, int cell, int[] keyCells, int[] keyGoalCosts) {
+        MazeGrid grid = problem.getGrid();
+        int best = DistanceField.UNREACHABLE;
+        for (int key = 0; key < keyCells.length; key++) {
+            if (keyGoalCosts[key] != DistanceField.UNREACHABLE) {
+                int toKey = Math.abs(grid.col(cell) - grid.col(keyCells[key]))
+                        + Math.abs(grid.row(cell) - grid.row(keyCells[key]));
+                best = Math.min(best, toKey + keyGoalCosts[key]);
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Runs a single A* leg of solve: from the given starting cell to the key (if
+     * foundKey is false) or to the nearest goal (if foundKey is true).
      *
-     * @param last SearchTreeNode to start the upward traversal at (a goal node)
-     * @return ArrayList sequence of actions; solution of format ["U", "R", "U", ...]
+     * @param problem A MazeProblem that specifies the maze, actions, transitions.
+     * @param startingCell Flat cell index to search from.
+     * @param foundKey Whether the objective of this leg is a goal rather than the key.
+     * @param frontierKind The Frontier implementation to search with.
+     * @return The actions of the leg, of the format: ["R", "R", "L", ...], or null
+     * if its objective is unreachable
      */
-    private static ArrayList<String> getPath (SearchTreeNode last) {
-        ArrayList<String> result = new ArrayList<>();
-        for (SearchTreeNode current = last; current.parent != null; current = current.parent) {
-            result.add(current.action);
+    static ArrayList<String> search (MazeProblem problem, int startingCell, boolean foundKey,
+            Frontier.Kind frontierKind) {
+        SearchWorkspace workspace = SearchWorkspace.forCurrentThread(problem.getGrid().size(), frontierKind);
+        try {
+            return search(problem, startingCell, foundKey, workspace);
+        } finally {
+            workspace.release();
         }
-        Collections.reverse(result);
-        return result;
     }
 
-}
+    /**
+     * Runs a single A* leg of solve as in search(problem, startingCell, foundKey,
+     * frontierKind), using and then leaving behind the state of the given workspace.
+     */
+    static ArrayList<String> search (MazeProblem problem, int startingCell, boolean foundKey,
+            SearchWorkspace workspace) {
+        workspace.reset();
+        int[] neighbors = workspace.neighbors, pastCosts = workspace.pastCosts;
+        Frontier frontier = workspace.frontier;
+        CellSet closedCells = workspace.closedCells;
 
-/**
- * SearchTreeNode that is used in the Search algorithm to construct the Search
- * tree.
- */
-class SearchTreeNode implements Comparable<SearchTreeNode> {
+        int startCost = problem.getDistance(startingCell, foundKey);
+        if (startCost == DistanceField.UNREACHABLE) {
+            return null;
+        }
+        workspace.generate(startingCell, -1, -1, 0);
+        frontier.push(startingCell, startCost);
+
+        while (!frontier.isEmpty()) {
+            int expanding = frontier.pop();
+            closedCells.add(expanding);
+
+            if (problem.isObjective(expanding, foundKey)) {
+                return getPath(workspace, expanding);
+            }
+
+            problem.getNeighbors(expanding, neighbors);
+            for (int move = MazeGrid.UP; move <= MazeGrid.RIGHT; move++) {
+                int next = neighbors[move];
+                if (next < 0 || closedCells.contains(next)) {
+                    continue;
+                }
+                int pastCost = pastCosts[expanding] + problem.getCost(next);
+                if (!workspace.isGenerated(next)) {
+                    int futureCost = problem.getDistance(next, foundKey);
+                    if (futureCost == DistanceField.UNREACHABLE) {
+                        // Only possible with an exact heuristic; the objective
+                        // cannot be reached through this cell
+                        closedCells.add(next);
+                        continue;
+                    }
+                    workspace.generate(next, expanding, move, pastCost);
+                    frontier.push(next, pastCost + futureCost);
+                } else if (pastCost < pastCosts[next]) {
+                    // The frontier key is pastCost + futureCost, so it drops by
+                    // exactly the saving in pastCost
+                    int key = frontier.getKey(next) - (pastCosts[next] - pastCost);
+                    workspace.reparent(next, expanding, move, pastCost);
+                    frontier.decreaseKey(next, key);
+                }
+            }
+        }
 
-    MazeState state;
-    String action;
-    SearchTreeNode parent;
-    int pastCost;
-    int futureCost;
-    int heuristic;
+        return null;
+    }
 
     /**
-     * Constructs a new SearchTreeNode to be used in the Search Tree.
+     * Given the last cell of a search (a goal), returns a solution by following the
+     * workspace's parent links up to the root, collecting moves along the way
      *
-     * @param state The MazeState (col, row) that this node represents.
-     * @param action The action that *led to* this state / node.
-     * @param parent Reference to parent SearchTreeNode in the Search Tree.
+     * @param workspace The SearchWorkspace holding the search tree
+     * @param last Index of the cell to start the upward traversal at (a goal)
+     * @return ArrayList sequence of actions; solution of format ["U", "R", "U", ...]
      */
-    SearchTreeNode (MazeState state, String action, SearchTreeNode parent, int pastCost, int futureCost) {
-        this.state = state;
-        this.action = action;
-        this.parent = parent;
-        this.pastCost = pastCost;
-        this.futureCost = futureCost;
-        this.heuristic = pastCost + futureCost;
-    }
-
-    @Override
-    public int compareTo(SearchTreeNode node) {
-        if(this.heuristic > node.heuristic) {
-            return 1;
-        } else if (this.heuristic < node.heuristic) {
-            return -1;
-        } else {
-            return 0;
+    static ArrayList<String> getPath (SearchWorkspace workspace, int last) {
+        ArrayList<String> result = new ArrayList<>();
+        for (int current = last; workspace.parents[current] >= 0; current = workspace.parents[current]) {
+            result.add(MazeGrid.action(workspace.moves[current]));
         }
+        Collections.reverse(result);
+        return result;
     }
 
 }
@@ -4,7 +4,15 @@ import org.junit.Test;
 
 import static org.junit.Assert.*;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Unit tests for Maze Pathfinder. Tests include completeness and
@@ -336,4 +344,883 @@ public class PathfinderTests {
 
         assertNull(solution); // Test that result is a solution
     }
+
+    @Test
+    public void testPathfinder_t19() {
+        String[] maze = {
+                "XXXXXXX",
+                "XKMMGMX",
+                "X.I..MX",
+                "X..MM.X",
+                "XXXXXXX"
+        };
+        MazeProblem prob = new MazeProblem(maze);
+        ArrayList<String> solution = Pathfinder.solve(prob);
+
+        int[] result = prob.testSolution(solution);
+        assertEquals(1, result[0]); // Test that result is a solution
+        assertEquals(7, result[1]); // Ensure that a cheaper path around the mud is found
+    }
+
+    @Test
+    public void testPathfinder_bucketQueue() {
+        String[] maze = {
+                "XXXXXXXXXX",
+                "XX.......X",
+                "XXXX..XX.X",
+                "XXXXIXXX.X",
+                "XXXXXXXX.X",
+                "X....K.M.X",
+                "X.XX.XX.XX",
+                "XGXXXXXX.XX",
+                "XXG.....XX",
+                "XXXXXXXXXX"
+        };
+        MazeProblem prob = new MazeProblem(maze);
+        ArrayList<String> solution = Pathfinder.solve(prob, Frontier.Kind.BUCKET_QUEUE);
+
+        int[] result = prob.testSolution(solution);
+        assertEquals(1,  result[0]); // Test that result is a solution
+        assertEquals(21, result[1]); // Ensure that the solution is optimal
+    }
+
+    @Test
+    public void testPathfinder_jumpPoint() {
+        String[] maze = {
+                "XXXXXXXXXXXX",
+                "X..XXXX...IX",
+                "X..XXX..K.XX",
+                "XGM....X...X",
+                "XXXXXXXX..XX",
+                "X.........XX",
+                "XGMXXXXX.X.X",
+                "XXXXXXXXXXXX",
+                "X..XXXXXXXXX",
+                "XXXXXXX.X.X.",
+                "XXXXXXXXXXXX"
+        };
+        MazeProblem prob = new MazeProblem(maze);
+        ArrayList<String> solution = JumpPointSearch.solve(prob);
+
+        int[] result = prob.testSolution(solution);
+        assertEquals(1,  result[0]); // Test that result is a solution
+        assertEquals(13, result[1]); // Ensure that the solution is optimal
+    }
+
+    @Test
+    public void testPathfinder_bidirectional() {
+        String[] maze = {
+                "XXXXXXXXXX",
+                "XX.......X",
+                "XXXX..XX.X",
+                "XXXXIXXX.X",
+                "XXXXXXXX.X",
+                "X....K.M.X",
+                "X.XX.XX.XX",
+                "XGXXXXXX.XX",
+                "XXG.....XX",
+                "XXXXXXXXXX"
+        };
+        MazeProblem prob = new MazeProblem(maze);
+        ArrayList<String> solution = BidirectionalSearch.solve(prob);
+
+        int[] result = prob.testSolution(solution);
+        assertEquals(1,  result[0]); // Test that result is a solution
+        assertEquals(21, result[1]); // Ensure that the solution is optimal
+        assertNull(BidirectionalSearch.solve(new MazeProblem(new String[] {
+                "XXXXXXX",
+                "XI.G..X",
+                "X.MXMGX",
+                "X.XKX.X",
+                "XXXXXXX"
+        }))); // Ensure that the searches know when they cannot meet
+
+        // A key on a wall, here under the start, can still be left, and the path
+        // walks back into it; the only shortest path is the one A* finds
+        prob.setTerrain(prob.INITIAL_STATE, 'X');
+        MazeProblem walledKey = new MazeProblem(prob.getGrid(), prob.INITIAL_STATE, prob.INITIAL_STATE, prob.GOAL_STATES);
+        assertEquals(Pathfinder.solve(walledKey, Frontier.Kind.BINARY_HEAP), BidirectionalSearch.solve(walledKey));
+    }
+
+    @Test
+    public void testPathfinder_goalDistanceField() {
+        String[] maze = {
+                "XXXXXXX",
+                "X..MMIX",
+                "XK..XXX",
+                "XGX.X.X",
+                "XXXXXXX"
+        };
+        MazeProblem prob = new MazeProblem(maze);
+        DistanceField field = prob.precomputeGoalDistances();
+        assertEquals(1, prob.getGoalDistance(prob.KEY_CELL)); // Exact cost, not block distance
+        assertEquals(DistanceField.UNREACHABLE, field.getDistance(prob.getGrid().index(5, 3)));
+
+        ArrayList<String> solution = Pathfinder.solve(prob);
+        int[] result = prob.testSolution(solution);
+        assertEquals(1,  result[0]); // Test that result is a solution
+        assertEquals(10, result[1]); // Ensure that the solution is optimal
+
+        // A walled source cannot be entered, so it gives its neighbors no distance
+        MazeGrid grid = prob.getGrid();
+        DistanceField walled = new DistanceField(grid, new int[] {grid.index(2, 3)});
+        assertEquals(DistanceField.UNREACHABLE, walled.getDistance(grid.index(1, 3)));
+        assertEquals(DistanceField.UNREACHABLE, walled.getDistance(grid.index(2, 2)));
+    }
+
+    @Test
+    public void testPathfinder_goalIndex() {
+        int rows = 37, cols = 41;
+        String[] maze = new String[rows];
+        char[] row = new char[cols];
+        Arrays.fill(row, '.');
+        for (int r = 0; r < rows; r++) {
+            maze[r] = new String(row);
+        }
+        maze[0] = "IK" + maze[0].substring(2);
+        maze[rows - 1] = maze[rows - 1].substring(1) + "G";
+        MazeGrid grid = new MazeProblem(maze).getGrid();
+
+        Random random = new Random(8);
+        for (int goals : new int[] {1, 3, 17, 100, 600}) {
+            int bucket = Math.max(1, (int) Math.sqrt(2.0 * rows * cols / goals)); // As sized by GoalIndex
+            for (int trial = 0; trial < 4; trial++) {
+                // Odd trials put the goals on bucket edges; the last two crowd them
+                // into a corner, so that most queries lie outside their bounding box
+                int spanCols = (trial < 2) ? cols : 7, spanRows = (trial < 2) ? rows : 5;
+                ArrayList<MazeState> goalStates = new ArrayList<>();
+                for (int i = 0; i < goals; i++) {
+                    int col = random.nextInt(spanCols), r = random.nextInt(spanRows);
+                    if (trial % 2 == 1) {
+                        col = Math.min(spanCols - 1, col / bucket * bucket + (random.nextBoolean() ? 0 : bucket - 1));
+                        r = Math.min(spanRows - 1, r / bucket * bucket + (random.nextBoolean() ? 0 : bucket - 1));
+                    }
+                    goalStates.add(new MazeState(col, r));
+                }
+                MazeProblem prob = new MazeProblem(grid, new MazeState(0, 0), new MazeState(1, 0), goalStates);
+                for (int cell = 0; cell < grid.size(); cell++) {
+                    int nearest = DistanceField.UNREACHABLE;
+                    for (MazeState goal : goalStates) {
+                        nearest = Math.min(nearest, Math.abs(grid.col(cell) - goal.col) + Math.abs(grid.row(cell) - goal.row));
+                    }
+                    assertEquals(nearest, prob.getGoalDistance(cell)); // Same as a scan over every goal
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testPathfinder_loadFile() throws IOException {
+        // A file stays mapped until its buffers are collected, which Windows will not
+        // delete under them, so it is deleted when the JVM exits
+        Path file = Files.createTempFile("maze", ".txt");
+        file.toFile().deleteOnExit();
+        Files.write(file, ("XXXXXXX\r\n"
+                         + "XI...KX\r\n"
+                         + "X.....X\r\n"
+                         + "X.X.XGX\r\n"
+                         + "XXXXXXX").getBytes(StandardCharsets.US_ASCII));
+        MazeProblem prob = MazeLoader.load(file);
+        ArrayList<String> solution = Pathfinder.solve(prob);
+
+        int[] result = prob.testSolution(solution);
+        assertEquals(1, result[0]); // Test that result is a solution
+        assertEquals(6, result[1]); // Ensure that the solution is optimal
+    }
+
+    @Test
+    public void testPathfinder_loadOffHeap() throws IOException {
+        // Both files stay mapped while the grids live, so they are deleted when the
+        // JVM exits, as in testPathfinder_loadFile
+        Path file = Files.createTempFile("maze", ".txt"), backing = Files.createTempFile("maze", ".grid");
+        file.toFile().deleteOnExit();
+        backing.toFile().deleteOnExit();
+        Files.write(file, ("XXXXXXX\n"
+                         + "X..MMIX\n"
+                         + "XK..XXX\n"
+                         + "XGX.X.X\n"
+                         + "XXXXXXX\n").getBytes(StandardCharsets.US_ASCII));
+        for (MazeProblem prob : new MazeProblem[] {MazeLoader.loadOffHeap(file),
+                                                   MazeLoader.loadOffHeap(file, backing)}) {
+            assertTrue(prob.getGrid() instanceof OffHeapMazeGrid);
+            ArrayList<String> solution = Pathfinder.solve(prob);
+
+            int[] result = prob.testSolution(solution);
+            assertEquals(1,  result[0]); // Test that result is a solution
+            assertEquals(10, result[1]); // Ensure that the solution is optimal
+        }
+    }
+
+    @Test
+    public void testPathfinder_batch() {
+        String[] maze = {
+                "XXXXXXX",
+                "XI...KX",
+                "X.....X",
+                "X.X.XGX",
+                "XXXXXXX"
+        };
+        MazeProblem prob = new MazeProblem(maze);
+        BatchSolver solver = new BatchSolver(prob, Frontier.Kind.BUCKET_QUEUE);
+        BatchSolver.BatchResult batch = solver.solveAll(Arrays.asList(
+                new BatchSolver.Query(prob.INITIAL_STATE, prob.KEY_STATE, prob.GOAL_STATES),
+                new BatchSolver.Query(new MazeState(5, 3), new MazeState(5, 1),
+                                      Collections.singleton(new MazeState(1, 1))),
+                new BatchSolver.Query(new MazeState(1, 2), new MazeState(3, 3),
+                                      Collections.singleton(new MazeState(1, 1))),
+                new BatchSolver.Query(new MazeState(1, 1), new MazeState(3, 3),
+                                      Collections.singleton(new MazeState(2, 3)))
+        ), ForkJoinPool.commonPool());
+
+        assertEquals(6, batch.results[0].cost);
+        assertEquals(6, batch.results[1].cost);
+        assertEquals(7, batch.results[2].cost);
+        assertNull(batch.results[3].path); // (2, 3) is a wall
+        assertTrue(batch.getThroughput() > 0);
+
+        // A walled goal is dropped, whichever search is asked
+        MazeProblem walledGoal = new MazeProblem(prob.getGrid(), new MazeState(1, 1), new MazeState(3, 3),
+                                                 Collections.singleton(new MazeState(2, 3)));
+        assertEquals(0, walledGoal.getGoalCells().length);
+        assertNull(BidirectionalSearch.solve(walledGoal));
+        assertNull(HierarchicalPathfinder.solve(walledGoal, new ClusterGraph(prob.getGrid(), 2)));
+        walledGoal.precomputeGoalDistances();
+        assertNull(Pathfinder.solve(walledGoal));
+
+        // A state outside the maze is refused rather than aliasing a cell of the next row
+        try {
+            solver.solve(new BatchSolver.Query(new MazeState(7, 1), prob.KEY_STATE, prob.GOAL_STATES));
+            fail();
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+        try {
+            solver.solve(new BatchSolver.Query(prob.INITIAL_STATE, prob.KEY_STATE,
+                                               Collections.singleton(new MazeState(1, 5))));
+            fail();
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testPathfinder_parallel() throws InterruptedException {
+        String[] maze = {
+                "XXXXXXXXXX",
+                "XI.MMM.G.X",
+                "X.X.XX.X.X",
+                "X..M...M.X",
+                "XMXX.XX..X",
+                "X..K.MM..X",
+                "XXXXXXXXXX"
+        };
+        MazeProblem prob = new MazeProblem(maze);
+        int optimal = prob.testSolution(Pathfinder.solve(prob))[1];
+        for (int threads = 1; threads <= 4; threads++) {
+            int[] result = prob.testSolution(ParallelPathfinder.solve(prob, threads));
+            assertEquals(1,       result[0]); // Test that result is a solution
+            assertEquals(optimal, result[1]); // Ensure that the solution is optimal
+        }
+        prob.setTerrain(prob.INITIAL_STATE, 'X'); // A start on a wall can still be left
+        int[] result = prob.testSolution(ParallelPathfinder.solve(prob, 4));
+        assertEquals(1,       result[0]);
+        assertEquals(optimal, result[1]);
+        assertNull(ParallelPathfinder.solve(new MazeProblem(new String[] {
+                "XXXXXXX",
+                "XI.G..X",
+                "X.MXMGX",
+                "X.XKX.X",
+                "XXXXXXX"
+        }), 4)); // Ensure that the workers terminate when no path exists
+    }
+
+    @Test
+    public void testPathfinder_hierarchical() throws IOException {
+        String[] maze = {
+                "XXXXXXXXXX",
+                "XX.......X",
+                "XXXX..XX.X",
+                "XXXXIXXX.X",
+                "XXXXXXXX.X",
+                "X....K.M.X",
+                "X.XX.XX.XX",
+                "XGXXXXXX.X",
+                "XXG.....XX",
+                "XXXXXXXXXX"
+        };
+        MazeProblem prob = new MazeProblem(maze);
+        Path file = Files.createTempFile("maze", ".clusters");
+        try {
+            new ClusterGraph(prob.getGrid(), 3).write(file);
+            ClusterGraph graph = ClusterGraph.read(file, prob.getGrid());
+            int[] result = prob.testSolution(HierarchicalPathfinder.solve(prob, graph));
+            assertEquals(1,  result[0]); // Test that result is a solution
+            assertEquals(21, result[1]); // Optimal here, though only near-optimal in general
+        } finally {
+            Files.delete(file);
+        }
+        MazeProblem blocked = new MazeProblem(new String[] {
+                "XXXXXXX",
+                "XI.G..X",
+                "X.MXMGX",
+                "X.XKX.X",
+                "XXXXXXX"
+        });
+        ClusterGraph blockedGraph = new ClusterGraph(blocked.getGrid(), 2);
+        assertNull(HierarchicalPathfinder.solve(blocked, blockedGraph));
+
+        // A start on a wall can still be left, but a walled goal cannot be reached
+        prob.setTerrain(prob.INITIAL_STATE, 'X');
+        int[] result = prob.testSolution(HierarchicalPathfinder.solve(prob, new ClusterGraph(prob.getGrid(), 3)));
+        assertEquals(1,  result[0]);
+        assertEquals(21, result[1]);
+        MazeProblem walledGoal = new MazeProblem(prob.getGrid(), new MazeState(2, 1), prob.KEY_STATE,
+                                                 Collections.singleton(new MazeState(3, 6)));
+        assertNull(HierarchicalPathfinder.solve(walledGoal, new ClusterGraph(prob.getGrid(), 3)));
+
+        // A graph of another maze of the same size, or of terrain since changed, is refused
+        MazeProblem sameSize = new MazeProblem(new String[] {
+                "XXXXXXX",
+                "XI.K..X",
+                "X.MXMGX",
+                "X.X.X.X",
+                "XXXXXXX"
+        });
+        try {
+            HierarchicalPathfinder.solve(sameSize, blockedGraph);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+        blocked.setTerrain(new MazeState(3, 2), '.');
+        assertFalse(blockedGraph.isCurrent(blocked.getGrid()));
+        try {
+            HierarchicalPathfinder.solve(blocked, blockedGraph);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+        assertEquals(1, blocked.testSolution(HierarchicalPathfinder.solve(blocked, new ClusterGraph(blocked.getGrid(), 2)))[0]);
+    }
+
+    @Test
+    public void testPathfinder_pathCache() {
+        String[] maze = {
+                "XXXXXXX",
+                "XI...KX",
+                "X.....X",
+                "X.X.XGX",
+                "XXXXXXX"
+        };
+        MazeProblem prob = new MazeProblem(maze);
+        PathCache cache = new PathCache(prob, 1);
+        assertEquals(6, prob.testSolution(cache.solve(prob.INITIAL_STATE, prob.KEY_STATE, prob.GOAL_STATES))[1]);
+        assertEquals(6, prob.testSolution(cache.solve(prob.INITIAL_STATE, prob.KEY_STATE, prob.GOAL_STATES))[1]);
+        assertEquals(1, cache.getHitCount());
+
+        cache.setCell(new MazeState(1, 3), 'M'); // Off the cached path: entry survives
+        cache.solve(prob.INITIAL_STATE, prob.KEY_STATE, prob.GOAL_STATES);
+        assertEquals(2, cache.getHitCount());
+
+        cache.setCell(new MazeState(5, 2), 'X'); // On the cached path: entry dropped
+        assertNull(cache.solve(prob.INITIAL_STATE, prob.KEY_STATE, prob.GOAL_STATES));
+        cache.setCell(new MazeState(5, 2), '.'); // Could open a path: "no path" dropped
+        assertEquals(6, prob.testSolution(cache.solve(prob.INITIAL_STATE, prob.KEY_STATE, prob.GOAL_STATES))[1]);
+        assertEquals(3, cache.getMissCount());
+        assertEquals(2, cache.getInvalidationCount());
+
+        cache.solve(new MazeState(1, 2), prob.KEY_STATE, prob.GOAL_STATES);
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testPathfinder_dStarLite() {
+        String[] maze = {
+                "XXXXXXX",
+                "XI...KX",
+                "X.....X",
+                "X.X.XGX",
+                "XXXXXXX"
+        };
+        MazeProblem prob = new MazeProblem(maze);
+        DStarLite planner = new DStarLite(prob);
+        assertEquals(6, prob.testSolution(planner.plan())[1]);
+
+        planner.move("R");
+        planner.setCell(new MazeState(3, 1), 'M'); // Mud appears ahead of the agent
+        MazeProblem fromAgent = new MazeProblem(prob.getGrid(), planner.getAgent(), prob.KEY_STATE, prob.GOAL_STATES);
+        int[] result = fromAgent.testSolution(planner.plan());
+        assertEquals(1, result[0]); // Test that result is a solution
+        assertEquals(7, result[1]); // Ensure that the repaired plan is optimal
+
+        planner.setCell(new MazeState(5, 2), 'X'); // The only door to the goal closes
+        assertNull(planner.plan());
+        planner.setCell(new MazeState(5, 2), '.');
+        assertEquals(7, fromAgent.testSolution(planner.plan())[1]);
+
+        planner.setCell(planner.getAgent(), 'X'); // A door closes on the agent, which can still leave
+        result = fromAgent.testSolution(planner.plan());
+        assertEquals(1, result[0]);
+        assertEquals(7, result[1]);
+    }
+
+    @Test
+    public void testPathfinder_multiKey() {
+        String[] maze = {
+                "XXXXXXXXX",
+                "XK..I..KX",
+                "X.XXMXX.X",
+                "XK..G..MX",
+                "XXXXXXXXX"
+        };
+        MazeProblem prob = new MazeProblem(maze);
+        ArrayList<String> solution = MultiKeyPathfinder.solve(prob);
+        int[] result = prob.testSolution(solution, true);
+        assertEquals(1, result[0]); // Test that result collects every key
+        assertEquals(14, result[1]); // Ensure that the order of keys is optimal
+        prob.setTerrain(prob.INITIAL_STATE, 'X'); // A start on a wall can still be left,
+        result = prob.testSolution(MultiKeyPathfinder.solve(prob), true);
+        assertEquals(1, result[0]);
+        assertEquals(20, result[1]); // though no longer crossed on the way between keys
+
+        String[] walledKey = {
+                "XXXXX",
+                "XIKGX",
+                "XXXXX",
+                "XK..X",
+                "XXXXX"
+        };
+        assertNull(MultiKeyPathfinder.solve(new MazeProblem(walledKey)));
+    }
+
+    @Test
+    public void testPathfinder_layered() {
+        String[] maze = {
+                "XXXXXXX",
+                "XI.MMGX",
+                "X.MXXKX",
+                "X..M..X",
+                "XXXXXXX"
+        };
+        MazeProblem prob = new MazeProblem(maze);
+        int[] result = prob.testSolution(Pathfinder.solveLayered(prob));
+        assertEquals(1, result[0]); // Test that result is a solution
+        assertEquals(prob.testSolution(Pathfinder.solve(prob))[1], result[1]);
+        assertEquals(result[1], prob.testSolution(Pathfinder.solveLayered(prob, Frontier.Kind.BUCKET_QUEUE))[1]);
+
+        // Any key will do, so the nearer one is taken
+        String[] twoKeys = {
+                "XXXXXXXXX",
+                "XI.KG..KX",
+                "XXXXXXXXX"
+        };
+        MazeProblem both = new MazeProblem(twoKeys);
+        assertEquals(3, both.testSolution(Pathfinder.solveLayered(both))[1]);
+        assertNull(Pathfinder.solveLayered(new MazeProblem(new String[] {"XXXXX", "XIXKX", "XGXXX"})));
+    }
+
+    @Test
+    public void testPathfinder_cellSet() {
+        assertTrue(new MazeState(0, 3).hashCode() != new MazeState(3, 0).hashCode());
+        assertTrue(new MazeState(2, 6).hashCode() != new MazeState(3, 4).hashCode());
+
+        for (CellSet.Kind kind : CellSet.Kind.values()) {
+            CellSet cells = kind.create(1 << 20);
+            for (int cell = 0; cell < 1 << 20; cell += 7) {
+                assertTrue(cells.add(cell));
+            }
+            assertFalse(cells.add(7));
+            cells.remove(7);
+            cells.remove(8); // Never added
+            assertFalse(cells.contains(7));
+            assertTrue(cells.contains(14));
+            assertEquals((1 << 20) / 7, cells.size());
+            cells.clear();
+            assertFalse(cells.contains(14));
+        }
+
+        String[] maze = {
+                "XXXXXXX",
+                "XI....X",
+                "X.MMM.X",
+                "X.XKX.X",
+                "X..G..X",
+                "XXXXXXX"
+        };
+        MazeProblem prob = new MazeProblem(maze);
+        SearchWorkspace sparse = new SearchWorkspace(prob.getGrid().size(), Frontier.Kind.BINARY_HEAP, CellSet.Kind.HASH);
+        assertEquals(prob.testSolution(Pathfinder.solve(prob))[1], prob.testSolution(Pathfinder.solve(prob, sparse))[1]);
+    }
+
+    @Test
+    public void testPathfinder_nodeStore() {
+        String[] maze = {
+                "XXXXXXX",
+                "XI.MK.X",
+                "X.XXX.X",
+                "X.M..GX",
+                "XXXXXXX"
+        };
+        MazeProblem prob = new MazeProblem(maze);
+        SearchWorkspace workspace = new SearchWorkspace(prob.getGrid().size(), Frontier.Kind.BINARY_HEAP);
+        ArrayList<String> first = Pathfinder.solve(prob, workspace);
+        assertEquals(1, prob.testSolution(first)[0]);
+        assertEquals(8, prob.testSolution(first)[1]);
+
+        // The parent links left by the last search must not leak into the next
+        MazeProblem fromKey = new MazeProblem(prob.getGrid(), prob.KEY_STATE, prob.KEY_STATE, prob.GOAL_STATES);
+        assertEquals(Arrays.asList("R", "D", "D"), Pathfinder.search(fromKey, fromKey.KEY_CELL, true, workspace));
+        assertEquals(first, Pathfinder.solve(prob, workspace));
+    }
+
+    @Test
+    public void testPathfinder_workspacePool() {
+        SearchWorkspace pooled = SearchWorkspace.forCurrentThread(100, Frontier.Kind.BINARY_HEAP);
+        pooled.release();
+        assertTrue(pooled == SearchWorkspace.forCurrentThread(50, Frontier.Kind.BINARY_HEAP));
+
+        // A nested search on the same thread gets a workspace of its own
+        SearchWorkspace nested = SearchWorkspace.forCurrentThread(50, Frontier.Kind.BINARY_HEAP);
+        assertTrue(pooled != nested);
+        nested.release();
+        pooled.release();
+        assertTrue(pooled == SearchWorkspace.forCurrentThread(50, Frontier.Kind.BINARY_HEAP));
+        pooled.release();
+        SearchWorkspace grown = SearchWorkspace.forCurrentThread(200, Frontier.Kind.BINARY_HEAP);
+        assertTrue(pooled != grown);
+        grown.release();
+
+        // A stamp must not read as current once the generation wraps around
+        CellSet stamped = CellSet.Kind.STAMPED.create(10);
+        stamped.add(3);
+        for (int i = 0; i < 1 << 16; i++) {
+            stamped.clear();
+            assertFalse(stamped.contains(3));
+        }
+
+        String[] maze = {
+                "XXXXXXX",
+                "XI.MK.X",
+                "X.XXX.X",
+                "X.M..GX",
+                "XXXXXXX"
+        };
+        MazeProblem prob = new MazeProblem(maze);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(8, prob.testSolution(Pathfinder.solve(prob))[1]);
+            assertEquals(8, prob.testSolution(Pathfinder.solveLayered(prob))[1]);
+        }
+    }
+
+    @Test
+    public void testPathfinder_bitParallel() {
+        String[] maze = {
+                "XXXXXXXXX",
+                "XI..X...X",
+                "XXX.X.X.X",
+                "XK..X.XGX",
+                "XX.XX.XXX",
+                "XX.....XX",
+                "XXXXXXXXX"
+        };
+        MazeProblem prob = new MazeProblem(maze);
+        assertTrue(Pathfinder.isBitParallel(prob.getGrid()));
+        int[] result = prob.testSolution(Pathfinder.solve(prob));
+        assertEquals(1, result[0]); // Test that result is a solution
+        assertEquals(20, result[1]); // Ensure that the solution is optimal
+
+        // Naming a Frontier kind or SearchWorkspace still searches with A*
+        SearchWorkspace workspace = new SearchWorkspace(prob.getGrid().size(), Frontier.Kind.BUCKET_QUEUE);
+        assertEquals(20, prob.testSolution(Pathfinder.solve(prob, workspace))[1]);
+        assertTrue(workspace.isGenerated(prob.INITIAL_CELL));
+
+        // Bits must carry across the 64-cell words of a row, both ways
+        char[] wall = new char[150], corridor = new char[150];
+        Arrays.fill(wall, 'X');
+        Arrays.fill(corridor, '.');
+        corridor[70] = 'I';
+        corridor[149] = 'K';
+        corridor[0] = 'G';
+        MazeProblem wide = new MazeProblem(new String[] {new String(wall), new String(corridor), new String(wall)});
+        assertTrue(Pathfinder.isBitParallel(wide.getGrid()));
+        assertEquals(79 + 149, wide.testSolution(Pathfinder.solve(wide))[1]);
+
+        // A start on a wall can still be left, and the path walks back into it
+        MazeProblem walled = new MazeProblem(new String[] {
+                "XXXXXXX",
+                "X.I..KX",
+                "X.....X",
+                "X.X.XGX",
+                "XXXXXXX"
+        });
+        walled.setTerrain(walled.INITIAL_STATE, 'X');
+        assertTrue(Pathfinder.isBitParallel(walled.getGrid()));
+        result = walled.testSolution(Pathfinder.solve(walled));
+        assertEquals(1, result[0]); // Test that result is a solution
+        assertEquals(5, result[1]); // Ensure that the solution is optimal
+
+        prob.setTerrain(new MazeState(3, 1), 'X'); // Walls off the key
+        assertNull(Pathfinder.solve(prob));
+        prob.setTerrain(new MazeState(3, 1), 'M');
+        assertFalse(Pathfinder.isBitParallel(prob.getGrid()));
+        assertEquals(22, prob.testSolution(Pathfinder.solve(prob))[1]);
+    }
+
+    @Test
+    public void testPathfinder_components() {
+        String[] maze = {
+                "XXXXXXX",
+                "XI.KXGX",
+                "XXXXXXX"
+        };
+        MazeProblem prob = new MazeProblem(maze);
+        assertNull(Pathfinder.solve(prob));
+        assertNull(prob.getGrid().getCurrentComponents()); // Searches do not label unasked
+        ConnectedComponents components = prob.getGrid().getComponents();
+        assertEquals(2, components.getCount());
+        assertFalse(prob.isSolvable()); // The goal is walled off
+        assertNull(Pathfinder.solve(prob));
+        assertNull(Pathfinder.solveLayered(prob));
+
+        // Opening the wall merges the two components
+        prob.setTerrain(new MazeState(4, 1), '.');
+        assertEquals(1, components.getCount());
+        assertTrue(prob.isSolvable());
+        assertEquals(4, prob.testSolution(Pathfinder.solve(prob))[1]);
+
+        // Closing it again splits them, once the labels are rebuilt; a search
+        // does not wait on that
+        prob.setTerrain(new MazeState(4, 1), 'X');
+        assertNull(Pathfinder.solve(prob));
+        assertNull(prob.getGrid().getCurrentComponents());
+        assertEquals(2, components.getCount());
+        assertTrue(prob.getGrid().getCurrentComponents() == components);
+        assertTrue(components.getComponent(prob.INITIAL_CELL) != components.getComponent(prob.getGrid().index(5, 1)));
+    }
+
+    @Test
+    public void testPathfinder_corridors() {
+        String[] maze = {
+                "XXXXXXXXXX",
+                "XI.....X.X",
+                "XX.XXX.X.X",
+                "X..XKX...X",
+                "XX.X.XXX.X",
+                "X..M...G.X",
+                "XXXXXXXXXX"
+        };
+        MazeProblem prob = new MazeProblem(maze);
+        CorridorGraph graph = new CorridorGraph(prob);
+        assertTrue(graph.getNodeCount() < 10); // 29 open cells
+        assertEquals(4, graph.getPrunedCount()); // The dead ends at (1, 3), (1, 5), and (8, 1) to (8, 2)
+        int[] result = prob.testSolution(CorridorPathfinder.solve(prob, graph));
+        assertEquals(1, result[0]); // Test that result is a solution
+        assertEquals(prob.testSolution(Pathfinder.solve(prob))[1], result[1]); // Ensure that the solution is optimal
+        assertEquals(16, result[1]);
+
+        // A graph describes the terrain it was built from
+        prob.setTerrain(new MazeState(4, 4), 'X');
+        assertFalse(graph.isCurrent());
+        assertNull(CorridorPathfinder.solve(prob));
+
+        // A walled key leaves a ring of corridor cells with no junction on it
+        MazeProblem ring = new MazeProblem(new String[] {
+                "XXXXXX",
+                "XIK..X",
+                "XXX..X",
+                "XXXXXX"
+        });
+        ring.setTerrain(ring.KEY_STATE, 'X');
+        assertNull(CorridorPathfinder.solve(ring));
+    }
+
+    @Test
+    public void testPathfinder_landmarks() throws IOException {
+        String[] maze = {
+                "XXXXXXXXXXX",
+                "XI.......KX",
+                "XXXXXXXXX.X",
+                "X.........X",
+                "X.XXXXXXXXX",
+                "X........GX",
+                "XXXXXXXXXXX"
+        };
+        MazeProblem prob = new MazeProblem(maze);
+        Path file = Files.createTempFile("maze", ".landmarks");
+        try {
+            new LandmarkTable(prob.getGrid(), 2).write(file);
+            prob.useLandmarks(LandmarkTable.read(file, prob.getGrid()));
+            try {
+                LandmarkTable.read(file, new MazeProblem(new String[] {"XIKGX"}).getGrid());
+                fail("Expected a table of another maze to be rejected");
+            } catch (IOException e) {
+                // Expected
+            }
+        } finally {
+            Files.delete(file);
+        }
+        // The wall between the key and goal hides 16 of the 20 steps from block distance
+        assertEquals(4, prob.getGoalDistance(prob.KEY_CELL));
+        int bound = prob.getDistance(prob.KEY_CELL, true);
+        assertTrue(bound > 4 && bound <= 20);
+        int[] result = prob.testSolution(Pathfinder.solve(prob));
+        assertEquals(1, result[0]); // Test that result is a solution
+        assertEquals(28, result[1]); // Ensure that the solution is optimal
+
+        // Bounds of the old terrain are ignored once it changes
+        prob.setTerrain(new MazeState(9, 2), 'M');
+        assertEquals(4, prob.getDistance(prob.KEY_CELL, true));
+    }
+
+    @Test
+    public void testPathfinder_anytime() {
+        String[] maze = {
+                "XXXXXXXXXXXX",
+                "XI.........X",
+                "X.XXXXXXXX.X",
+                "X.X......X.X",
+                "X.X.X.XX.X.X",
+                "X...XKGX...X",
+                "XXXXXXXXXXXX"
+        };
+        MazeProblem prob = new MazeProblem(maze);
+        int optimal = prob.testSolution(Pathfinder.solve(prob))[1];
+        ArrayList<int[]> costs = new ArrayList<>();
+        ArrayList<Double> bounds = new ArrayList<>();
+        ArrayList<String> solution = AnytimePathfinder.solve(prob, 4.0, 1.0, Long.MAX_VALUE, (path, cost, bound) -> {
+            costs.add(prob.testSolution(path));
+            bounds.add(bound);
+        });
+        assertFalse(costs.isEmpty());
+        for (int i = 0; i < costs.size(); i++) {
+            assertEquals(1, costs.get(i)[0]); // Test that each result is a solution
+            assertTrue(costs.get(i)[1] <= bounds.get(i) * optimal); // within its bound
+            assertTrue(i == 0 || bounds.get(i) < bounds.get(i - 1) || costs.get(i)[1] < costs.get(i - 1)[1]);
+        }
+        assertEquals(1.0, bounds.get(bounds.size() - 1), 0);
+        assertEquals(optimal, prob.testSolution(solution)[1]); // Ensure that the final solution is optimal
+
+        // A listener may run searches of its own on the same thread
+        MazeProblem muddy = new MazeProblem(new String[] {
+                ".IXMM.XM..MX.",
+                "..M.M.MM....X",
+                ".M..XX.MXMXXX",
+                "XX.M......K..",
+                "MMMXX.M.XXMMX",
+                "M.M..X......M",
+                "..M.XM.G.MX.X",
+                "MMMMM.X....XM"
+        });
+        int muddyOptimal = muddy.testSolution(Pathfinder.solve(muddy))[1];
+        ArrayList<String> nested = AnytimePathfinder.solve(muddy, 4.0, 1.0, Long.MAX_VALUE, (path, cost, bound) -> {
+            assertEquals(muddyOptimal, muddy.testSolution(Pathfinder.solve(muddy))[1]);
+        });
+        assertEquals(1, muddy.testSolution(nested)[0]);
+        assertEquals(muddyOptimal, muddy.testSolution(nested)[1]);
+
+        // With no time to spare, the first solution is still found
+        ArrayList<String> first = AnytimePathfinder.solve(prob, 0, null);
+        assertEquals(1, prob.testSolution(first)[0]);
+
+        prob.setTerrain(new MazeState(1, 2), 'X'); // Walls off the key
+        prob.setTerrain(new MazeState(10, 2), 'X');
+        assertNull(AnytimePathfinder.solve(prob, Long.MAX_VALUE, null));
+    }
+    @Test
+    public void testPathfinder_randomized() throws InterruptedException {
+        // Every optimal search must match plain A* on small random mazes, including
+        // ones whose start is a wall (it can still be left), whose key is a wall (it
+        // can never be reached), whose goals include a wall (never a way out), or
+        // whose goal distances are precomputed. Mazes without mud are walled densely
+        // enough to be searched bit-parallel
+        Random random = new Random(282);
+        for (int trial = 0; trial < 300; trial++) {
+            boolean mud = trial % 3 != 0;
+            String[] maze = randomMaze(random, 3 + random.nextInt(10), 3 + random.nextInt(14), mud ? 0.3 : 0.5, mud ? 0.2 : 0);
+            MazeProblem prob = new MazeProblem(maze);
+            MazeGrid grid = prob.getGrid();
+            if (trial % 4 == 1) {
+                prob.setTerrain(prob.INITIAL_STATE, 'X');
+            } else if (trial % 4 == 2) {
+                ArrayList<MazeState> goals = new ArrayList<>(prob.GOAL_STATES);
+                for (int cell = 0; cell < grid.size(); cell++) {
+                    if (grid.isWall(cell)) {
+                        goals.add(prob.toState(cell));
+                        break;
+                    }
+                }
+                prob = new MazeProblem(grid, prob.INITIAL_STATE, prob.KEY_STATE, goals);
+            } else if (trial % 4 == 3) {
+                prob.setTerrain(prob.KEY_STATE, 'X');
+            }
+            if (trial % 5 == 3) {
+                prob.precomputeGoalDistances();
+            }
+
+            ArrayList<String> baseline = Pathfinder.solve(prob, Frontier.Kind.BINARY_HEAP);
+            int optimal = (baseline == null) ? -1 : prob.testSolution(baseline)[1];
+            assertCost(prob, optimal, baseline);
+            assertCost(prob, optimal, Pathfinder.solve(prob));
+            assertCost(prob, optimal, Pathfinder.solve(prob, Frontier.Kind.BUCKET_QUEUE));
+            assertCost(prob, optimal, Pathfinder.solveLayered(prob));
+            assertCost(prob, optimal, JumpPointSearch.solve(prob));
+            assertCost(prob, optimal, BidirectionalSearch.solve(prob));
+            assertCost(prob, optimal, ParallelPathfinder.solve(prob, 2));
+            assertCost(prob, optimal, MultiKeyPathfinder.solve(prob));
+            assertCost(prob, optimal, CorridorPathfinder.solve(prob));
+            assertCost(prob, optimal, AnytimePathfinder.solve(prob, Long.MAX_VALUE, null));
+            assertCost(prob, optimal, new DStarLite(prob).plan());
+
+            // Hierarchical search is only near-optimal
+            ArrayList<String> hierarchical = HierarchicalPathfinder.solve(prob, new ClusterGraph(grid, 3));
+            assertEquals(baseline == null, hierarchical == null);
+            if (hierarchical != null) {
+                int[] result = prob.testSolution(hierarchical);
+                assertEquals(1, result[0]);
+                assertTrue(result[1] >= optimal);
+            }
+        }
+    }
+
+    /**
+     * Asserts that path is null if optimal is -1, and otherwise a solution to prob
+     * of cost optimal.
+     */
+    private static void assertCost (MazeProblem prob, int optimal, ArrayList<String> path) {
+        if (optimal < 0) {
+            assertNull(path);
+            return;
+        }
+        int[] result = prob.testSolution(path);
+        assertEquals(1, result[0]); // Test that result is a solution
+        assertEquals(optimal, result[1]); // Ensure that the solution is optimal
+    }
+
+    /**
+     * @return A random maze of the given size and fractions of walls and mud, with
+     * one 'I', 'K', and 'G' each on distinct cells
+     */
+    private static String[] randomMaze (Random random, int rows, int cols, double walls, double mud) {
+        char[][] cells = new char[rows][cols];
+        for (char[] row : cells) {
+            for (int col = 0; col < cols; col++) {
+                double terrain = random.nextDouble();
+                row[col] = (terrain < walls) ? 'X' : (terrain < walls + mud) ? 'M' : '.';
+            }
+        }
+        for (char c : new char[] {'I', 'K', 'G'}) {
+            int row, col;
+            do {
+                row = random.nextInt(rows);
+                col = random.nextInt(cols);
+            } while (cells[row][col] == 'I' || cells[row][col] == 'K');
+            cells[row][col] = c;
+        }
+        String[] maze = new String[rows];
+        for (int row = 0; row < rows; row++) {
+            maze[row] = new String(cells[row]);
+        }
+        return maze;
+    }
 }
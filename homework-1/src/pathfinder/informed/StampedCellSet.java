@@ -0,0 +1,74 @@
+package pathfinder.informed;
+
+import java.util.Arrays;
+
+/**
+ * CellSet of the cells [0, capacity) that is cleared in O(1): each cell holds the
+ * generation it was last added in, and a cell is a member iff that is the current
+ * generation, so clear only has to advance the generation. Stamps are 16-bit, so
+ * the array is refilled once every 65535 clears.
+ */
+public class StampedCellSet implements CellSet {
+
+    // Fields
+    // -----------------------------------------------------------------------------
+    private final char[] stamps;
+    private char generation = 1;
+    private int size;
+
+
+    // Constructor
+    // -----------------------------------------------------------------------------
+
+    /**
+     * Constructs a new, empty StampedCellSet able to hold the cells [0, capacity).
+     *
+     * @param capacity Number of distinct cells, i.e., MazeGrid.size()
+     */
+    StampedCellSet (int capacity) {
+        stamps = new char[capacity];
+    }
+
+
+    // Methods
+    // -----------------------------------------------------------------------------
+
+    @Override
+    public boolean contains (int cell) {
+        return stamps[cell] == generation;
+    }
+
+    @Override
+    public boolean add (int cell) {
+        if (stamps[cell] == generation) {
+            return false;
+        }
+        stamps[cell] = generation;
+        size++;
+        return true;
+    }
+
+    @Override
+    public void remove (int cell) {
+        if (stamps[cell] == generation) {
+            stamps[cell] = 0;
+            size--;
+        }
+    }
+
+    @Override
+    public int size () {
+        return size;
+    }
+
+    @Override
+    public void clear () {
+        size = 0;
+        if (++generation == 0) {
+            // Wrapped around: stamps from 65535 clears ago would read as current
+            Arrays.fill(stamps, (char) 0);
+            generation = 1;
+        }
+    }
+
+}